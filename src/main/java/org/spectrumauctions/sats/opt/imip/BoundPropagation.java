@@ -0,0 +1,203 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import com.google.common.base.Preconditions;
+import edu.harvard.econcs.jopt.solver.mip.CompareType;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
+import edu.harvard.econcs.jopt.solver.mip.LinearTerm;
+import edu.harvard.econcs.jopt.solver.mip.MIP;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tightens the bounds of the variables of a {@link MIP}, typically composed from several {@link PartialMIP}s,
+ * by feasibility based bound propagation over its linear constraints.<br>
+ * For a constraint sum_i a_i * x_i <= b, the minimal activity of all terms but i gives the bound
+ * a_i * x_i <= b - min(sum_{j != i} a_j * x_j), which is an upper bound on x_i if a_i > 0 and a lower bound otherwise.
+ * Constraints of type GEQ are treated the same way with the maximal activity, and EQ constraints as both.
+ * The constraints are passed repeatedly, such that bounds propagate along chains of constraints,
+ * e.g., from the quantity variables X through the piecewise linear functions to the value variables.<br>
+ * Bounds with an absolute value of at least {@link MIP#MAX_VALUE} are treated as infinite. The derived bounds are
+ * implied by the constraints, hence no feasible solution is cut off. They are relaxed by a small tolerance
+ * against rounding errors, and the bounds of integer and boolean variables are rounded.
+ */
+public final class BoundPropagation {
+
+    private static final double TOLERANCE = 1e-6;
+
+    private static final int DEFAULT_MAX_ROUNDS = 20;
+
+    private final String[] names;
+    private final double[] lower;
+    private final double[] upper;
+    private final boolean[] integer;
+    private final List<int[]> rowIndices = new ArrayList<>();
+    private final List<double[]> rowCoefficients = new ArrayList<>();
+    private final List<Constraint> rows = new ArrayList<>();
+
+    private BoundPropagation(MIP mip) {
+        Map<String, Variable> vars = mip.getVars();
+        names = vars.keySet().toArray(new String[vars.size()]);
+        lower = new double[names.length];
+        upper = new double[names.length];
+        integer = new boolean[names.length];
+        Map<String, Integer> indices = new HashMap<>();
+        for (int v = 0; v < names.length; v++) {
+            Variable var = vars.get(names[v]);
+            indices.put(names[v], v);
+            lower[v] = var.getLowerBound();
+            upper[v] = var.getUpperBound();
+            integer[v] = var.getType() != VarType.DOUBLE;
+        }
+        constraints:
+        for (Constraint constraint : mip.getConstraints()) {
+            if (constraint.hasQuadraticTerms() || !constraint.hasLinearTerms()) {
+                continue;
+            }
+            int[] index = new int[constraint.linearSize()];
+            double[] coefficient = new double[index.length];
+            int t = 0;
+            for (LinearTerm term : constraint.getLinearTerms()) {
+                Integer v = indices.get(term.getVarName());
+                if (v == null) {
+                    // The variable is not part of the mip, nothing can be derived from this constraint
+                    continue constraints;
+                }
+                index[t] = v;
+                coefficient[t++] = term.getCoefficient();
+            }
+            rows.add(constraint);
+            rowIndices.add(index);
+            rowCoefficients.add(coefficient);
+        }
+    }
+
+    /**
+     * Tightens the bounds of the variables of the mip, with at most 20 passes over the constraints.
+     * @return the number of tightened bounds
+     */
+    public static int tighten(MIP mip) {
+        return tighten(mip, DEFAULT_MAX_ROUNDS);
+    }
+
+    /**
+     * Tightens the bounds of the variables of the mip.
+     * @param maxRounds the maximal number of passes over the constraints
+     * @return the number of tightened bounds
+     */
+    public static int tighten(MIP mip, int maxRounds) {
+        Preconditions.checkArgument(maxRounds > 0);
+        BoundPropagation propagation = new BoundPropagation(mip);
+        int tightened = 0;
+        for (int round = 0; round < maxRounds; round++) {
+            int tightenedInRound = propagation.propagate();
+            if (tightenedInRound == 0) {
+                break;
+            }
+            tightened += tightenedInRound;
+        }
+        propagation.apply(mip);
+        return tightened;
+    }
+
+    private int propagate() {
+        int tightened = 0;
+        for (int r = 0; r < rows.size(); r++) {
+            Constraint constraint = rows.get(r);
+            int[] index = rowIndices.get(r);
+            double[] coefficient = rowCoefficients.get(r);
+            if (constraint.getType() != CompareType.GEQ) {
+                // sum_i a_i * x_i <= b
+                tightened += propagate(index, coefficient, constraint.getConstant());
+            }
+            if (constraint.getType() != CompareType.LEQ) {
+                // sum_i -a_i * x_i <= -b
+                double[] negated = new double[coefficient.length];
+                for (int t = 0; t < coefficient.length; t++) {
+                    negated[t] = -coefficient[t];
+                }
+                tightened += propagate(index, negated, -constraint.getConstant());
+            }
+        }
+        return tightened;
+    }
+
+    /**
+     * Propagates sum_i a_i * x_i <= b
+     */
+    private int propagate(int[] index, double[] coefficient, double b) {
+        double finiteMinActivity = 0;
+        int infiniteTerms = 0;
+        int infiniteTerm = -1;
+        double[] minContribution = new double[index.length];
+        for (int t = 0; t < index.length; t++) {
+            double bound = coefficient[t] > 0 ? lower[index[t]] : upper[index[t]];
+            if (coefficient[t] == 0) {
+                minContribution[t] = 0;
+            } else if (isInfinite(bound)) {
+                infiniteTerms++;
+                infiniteTerm = t;
+            } else {
+                minContribution[t] = coefficient[t] * bound;
+                finiteMinActivity += minContribution[t];
+            }
+        }
+        if (infiniteTerms > 1) {
+            return 0;
+        }
+        int tightened = 0;
+        for (int t = 0; t < index.length; t++) {
+            if (coefficient[t] == 0 || (infiniteTerms == 1 && t != infiniteTerm)) {
+                continue;
+            }
+            double residual = infiniteTerms == 1 ? finiteMinActivity : finiteMinActivity - minContribution[t];
+            double bound = (b - residual) / coefficient[t];
+            int v = index[t];
+            if (coefficient[t] > 0) {
+                double newUpper = relax(bound, 1, integer[v]);
+                if (newUpper < upper[v] - TOLERANCE * Math.max(1, Math.abs(upper[v])) && newUpper >= lower[v]) {
+                    upper[v] = newUpper;
+                    tightened++;
+                }
+            } else {
+                double newLower = relax(bound, -1, integer[v]);
+                if (newLower > lower[v] + TOLERANCE * Math.max(1, Math.abs(lower[v])) && newLower <= upper[v]) {
+                    lower[v] = newLower;
+                    tightened++;
+                }
+            }
+        }
+        return tightened;
+    }
+
+    /**
+     * Relaxes the bound by the tolerance in the given direction, and rounds it for integer variables
+     */
+    private static double relax(double bound, int direction, boolean integer) {
+        double relaxed = bound + direction * TOLERANCE * Math.max(1, Math.abs(bound));
+        if (integer) {
+            return direction > 0 ? Math.floor(relaxed) : Math.ceil(relaxed);
+        }
+        return relaxed;
+    }
+
+    private static boolean isInfinite(double bound) {
+        return Math.abs(bound) >= MIP.MAX_VALUE;
+    }
+
+    private void apply(MIP mip) {
+        for (int v = 0; v < names.length; v++) {
+            Variable var = mip.getVar(names[v]);
+            if (lower[v] != var.getLowerBound()) {
+                var.setLowerBound(lower[v]);
+            }
+            if (upper[v] != var.getUpperBound()) {
+                var.setUpperBound(upper[v]);
+            }
+        }
+    }
+}
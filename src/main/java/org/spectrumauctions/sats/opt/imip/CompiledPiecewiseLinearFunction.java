@@ -0,0 +1,192 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+
+import java.math.BigDecimal;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A double precision form of a {@link ContinuousPiecewiseLinearFunction}, with the breakpoints, values, slopes and
+ * intercepts precomputed in primitive arrays. Inner breakpoints at which the slope does not change are merged,
+ * hence every breakpoint except the first and the last one is a true corner of the function.<br>
+ * The pieces are indexed by {0, ..., k-1}, where piece i lies between breakpoint i and breakpoint i+1.
+ */
+public final class CompiledPiecewiseLinearFunction {
+
+    private static final double RELATIVE_TOLERANCE = 1e-9;
+
+    /**
+     * Functions are usually shared (e.g. per band of a world), hence they are compiled once.
+     * The functions are weakly referenced, such that unused functions can be collected.
+     */
+    private static final LoadingCache<ContinuousPiecewiseLinearFunction, CompiledPiecewiseLinearFunction> cache =
+            CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(CompiledPiecewiseLinearFunction::compile));
+
+    private final double[] breakpoints;
+    private final double[] values;
+    private final double[] slopes;
+    private final double[] intercepts;
+
+    /**
+     * @param x the strictly increasing x-coordinates of the corner points, at least two
+     * @param y the function values at the corner points
+     */
+    public CompiledPiecewiseLinearFunction(double[] x, double[] y) {
+        Preconditions.checkArgument(x.length == y.length, "One value per breakpoint required");
+        Preconditions.checkArgument(x.length >= 2, "At least two breakpoints required");
+        double[] mergedX = new double[x.length];
+        double[] mergedY = new double[x.length];
+        double[] mergedSlopes = new double[x.length - 1];
+        mergedX[0] = x[0];
+        mergedY[0] = y[0];
+        int count = 1;
+        for (int j = 1; j < x.length; j++) {
+            Preconditions.checkArgument(x[j] > x[j - 1], "Breakpoints must be strictly increasing");
+            double slope = (y[j] - mergedY[count - 1]) / (x[j] - mergedX[count - 1]);
+            if (count >= 2 && equal(slope, mergedSlopes[count - 2])) {
+                // The previous breakpoint is collinear with its neighbours
+                count--;
+                slope = (y[j] - mergedY[count - 1]) / (x[j] - mergedX[count - 1]);
+            }
+            mergedSlopes[count - 1] = slope;
+            mergedX[count] = x[j];
+            mergedY[count] = y[j];
+            count++;
+        }
+        this.breakpoints = Arrays.copyOf(mergedX, count);
+        this.values = Arrays.copyOf(mergedY, count);
+        this.slopes = Arrays.copyOf(mergedSlopes, count - 1);
+        this.intercepts = new double[count - 1];
+        for (int i = 0; i < count - 1; i++) {
+            intercepts[i] = values[i] - slopes[i] * breakpoints[i];
+        }
+    }
+
+    /**
+     * @return the compiled form of the function, which is only computed once per function instance
+     */
+    public static CompiledPiecewiseLinearFunction of(ContinuousPiecewiseLinearFunction func) {
+        return cache.getUnchecked(func);
+    }
+
+    private static CompiledPiecewiseLinearFunction compile(ContinuousPiecewiseLinearFunction func) {
+        List<SimpleImmutableEntry<BigDecimal, BigDecimal>> cornerPoints = func.getCornerPoints();
+        double[] x = new double[cornerPoints.size()];
+        double[] y = new double[cornerPoints.size()];
+        for (int j = 0; j < cornerPoints.size(); j++) {
+            x[j] = cornerPoints.get(j).getKey().doubleValue();
+            y[j] = cornerPoints.get(j).getValue().doubleValue();
+        }
+        return new CompiledPiecewiseLinearFunction(x, y);
+    }
+
+    private static boolean equal(double slope, double otherSlope) {
+        double tolerance = RELATIVE_TOLERANCE * Math.max(1, Math.max(Math.abs(slope), Math.abs(otherSlope)));
+        return Math.abs(slope - otherSlope) <= tolerance;
+    }
+
+    public int getNumberOfPieces() {
+        return slopes.length;
+    }
+
+    public int getNumberOfBreakpoints() {
+        return breakpoints.length;
+    }
+
+    public double getBreakpoint(int j) {
+        return breakpoints[j];
+    }
+
+    /**
+     * @return a copy of the breakpoints
+     */
+    public double[] getBreakpoints() {
+        return breakpoints.clone();
+    }
+
+    /**
+     * @return the function value at breakpoint j
+     */
+    public double getValue(int j) {
+        return values[j];
+    }
+
+    /**
+     * @return a copy of the function values at the breakpoints
+     */
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    public double getSlope(int piece) {
+        return slopes[piece];
+    }
+
+    public double getIntercept(int piece) {
+        return intercepts[piece];
+    }
+
+    public double getLowestX() {
+        return breakpoints[0];
+    }
+
+    public double getHighestX() {
+        return breakpoints[breakpoints.length - 1];
+    }
+
+    /**
+     * @return the index of the piece containing x, the lower one if x is a breakpoint
+     * @throws IllegalArgumentException if x is not in the domain of the function
+     */
+    public int pieceAt(double x) {
+        Preconditions.checkArgument(x >= getLowestX() && x <= getHighestX(), "%s is not in the domain", x);
+        int index = Arrays.binarySearch(breakpoints, x);
+        if (index < 0) {
+            // x lies strictly between breakpoints -index - 2 and -index - 1
+            return -index - 2;
+        }
+        return Math.max(0, index - 1);
+    }
+
+    public double getY(double x) {
+        int piece = pieceAt(x);
+        return slopes[piece] * x + intercepts[piece];
+    }
+
+    /**
+     * @return true iff the function is linear, i.e., it consists of a single piece
+     */
+    public boolean isLinear() {
+        return slopes.length == 1;
+    }
+
+    /**
+     * @return true iff the slopes are non-increasing
+     */
+    public boolean isConcave() {
+        for (int i = 1; i < slopes.length; i++) {
+            if (slopes[i] > slopes[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true iff the slopes are non-decreasing
+     */
+    public boolean isConvex() {
+        for (int i = 1; i < slopes.length; i++) {
+            if (slopes[i] < slopes[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.mip.CompareType;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+
+import java.util.List;
+
+/**
+ * The Z/condX formulation, used by {@link PiecewiseLinearPartialMIP.Encoding#CONDITIONAL_X} for a single function
+ * and for several functions of the same input:
+ * one boolean Z_i and one double condX_i per linear piece i, where condX_i = X iff Z_i = 1 and condX_i = 0 otherwise.
+ * Every output is then given by<br>
+ * Y_m = \sum_{i=1}^k value_{m,i-1} * Z_i + slope_m(i) * (condX_i - breakpoint_{i-1} * Z_i)
+ *
+ * @see <a href="http://yetanothermathprogrammingconsultant.blogspot.ch/2015/10/piecewise-linear-functions-in-mip-models.html"> this blog post </a>
+ */
+public class ConditionalXPiecewiseLinearEncoding implements PiecewiseLinearEncoding {
+
+    private static final String linearPieceVariableName = "_Z";
+    private static final String conditionalXVariableName = "_condX";
+
+    @Override
+    public void encode(double[] breakpoints,
+                       double[][] values,
+                       Variable functionInput,
+                       List<Variable> functionOutputs,
+                       String auxiliaryPartialName,
+                       PartialMIP partialMip) {
+        int numberOfPieces = breakpoints.length - 1;
+        double lowerBound = Math.min(0, breakpoints[0]);
+        double upperBound = Math.max(0, breakpoints[numberOfPieces]);
+        Constraint zCount = new Constraint(CompareType.EQ, 1);
+        Constraint condXSum = new Constraint(CompareType.EQ, 0);
+        condXSum.addTerm(-1, functionInput);
+        Constraint[] ySums = new Constraint[values.length];
+        for (int m = 0; m < values.length; m++) {
+            ySums[m] = new Constraint(CompareType.EQ, 0);
+            ySums[m].addTerm(-1, functionOutputs.get(m));
+        }
+        for (int i = 1; i <= numberOfPieces; i++) {
+            String varName = auxiliaryPartialName.concat(linearPieceVariableName).concat(String.valueOf(i));
+            Variable z = new Variable(varName, VarType.BOOLEAN, 0, 1);
+            partialMip.addVariable(z);
+            varName = auxiliaryPartialName.concat(conditionalXVariableName).concat(String.valueOf(i));
+            Variable condX = new Variable(varName, VarType.DOUBLE, lowerBound, upperBound);
+            partialMip.addVariable(condX);
+            // CornerX_{i-1} * Z_i - condX_i <= 0
+            Constraint lowerC = new Constraint(CompareType.LEQ, 0);
+            lowerC.addTerm(breakpoints[i - 1], z);
+            lowerC.addTerm(-1, condX);
+            partialMip.addConstraint(lowerC);
+            // condX_i - CornerX_{i} * Z_i <= 0
+            Constraint upperC = new Constraint(CompareType.LEQ, 0);
+            upperC.addTerm(-breakpoints[i], z);
+            upperC.addTerm(1, condX);
+            partialMip.addConstraint(upperC);
+            zCount.addTerm(1, z);
+            condXSum.addTerm(1, condX);
+            for (int m = 0; m < values.length; m++) {
+                double slope = (values[m][i] - values[m][i - 1]) / (breakpoints[i] - breakpoints[i - 1]);
+                ySums[m].addTerm(values[m][i - 1] - slope * breakpoints[i - 1], z);
+                ySums[m].addTerm(slope, condX);
+            }
+        }
+        partialMip.addConstraint(zCount);
+        partialMip.addConstraint(condXSum);
+        for (Constraint ySum : ySums) {
+            partialMip.addConstraint(ySum);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.mip.CompareType;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+
+import java.util.List;
+
+/**
+ * The incremental (delta) formulation: delta_i in [0, 1] is the filled fraction of the i'th linear piece, i.e.,<br>
+ * X = breakpoint_0 + sum_i delta_i * (breakpoint_i - breakpoint_{i-1}) and<br>
+ * Y = value_0 + sum_i delta_i * (value_i - value_{i-1}).<br>
+ * The pieces are filled in order, enforced by the booleans W_i for i in {1, ..., k-1}:
+ * delta_{i+1} <= W_i <= delta_i.
+ */
+public class IncrementalPiecewiseLinearEncoding implements PiecewiseLinearEncoding {
+
+    private static final String deltaVariableName = "_delta";
+    private static final String orderVariableName = "_W";
+
+    @Override
+    public void encode(double[] breakpoints,
+                       double[][] values,
+                       Variable functionInput,
+                       List<Variable> functionOutputs,
+                       String auxiliaryPartialName,
+                       PartialMIP partialMip) {
+        int numberOfPieces = breakpoints.length - 1;
+        Variable[] delta = new Variable[numberOfPieces + 1];
+        Constraint xSum = new Constraint(CompareType.EQ, breakpoints[0]);
+        xSum.addTerm(1, functionInput);
+        Constraint[] ySums = new Constraint[values.length];
+        for (int m = 0; m < values.length; m++) {
+            ySums[m] = new Constraint(CompareType.EQ, values[m][0]);
+            ySums[m].addTerm(1, functionOutputs.get(m));
+        }
+        for (int i = 1; i <= numberOfPieces; i++) {
+            String varName = auxiliaryPartialName.concat(deltaVariableName).concat(String.valueOf(i));
+            delta[i] = new Variable(varName, VarType.DOUBLE, 0, 1);
+            partialMip.addVariable(delta[i]);
+            xSum.addTerm(breakpoints[i - 1] - breakpoints[i], delta[i]);
+            for (int m = 0; m < values.length; m++) {
+                ySums[m].addTerm(values[m][i - 1] - values[m][i], delta[i]);
+            }
+        }
+        partialMip.addConstraint(xSum);
+        for (Constraint ySum : ySums) {
+            partialMip.addConstraint(ySum);
+        }
+        for (int i = 1; i < numberOfPieces; i++) {
+            String varName = auxiliaryPartialName.concat(orderVariableName).concat(String.valueOf(i));
+            Variable w = new Variable(varName, VarType.BOOLEAN, 0, 1);
+            partialMip.addVariable(w);
+            // delta_{i+1} - W_i <= 0
+            Constraint next = new Constraint(CompareType.LEQ, 0);
+            next.addTerm(1, delta[i + 1]);
+            next.addTerm(-1, w);
+            partialMip.addConstraint(next);
+            // W_i - delta_i <= 0
+            Constraint current = new Constraint(CompareType.LEQ, 0);
+            current.addTerm(1, w);
+            current.addTerm(-1, delta[i]);
+            partialMip.addConstraint(current);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.mip.CompareType;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+
+import java.util.List;
+
+/**
+ * The convex combination (lambda) formulation: X and Y are written as convex combination
+ * of the breakpoints with weights lambda_j, of which at most two adjacent ones may be non-zero (SOS2).<br>
+ * As jopt does not support SOS2 constraints, the SOS2 condition is enforced by one boolean Z_i per linear piece:
+ * lambda_j may only be non-zero if Z_j or Z_{j+1}, i.e., one of the adjacent pieces, is selected.
+ */
+public class LambdaPiecewiseLinearEncoding implements PiecewiseLinearEncoding {
+
+    private static final String lambdaVariableName = "_lambda";
+    private static final String linearPieceVariableName = "_Z";
+
+    @Override
+    public void encode(double[] breakpoints,
+                       double[][] values,
+                       Variable functionInput,
+                       List<Variable> functionOutputs,
+                       String auxiliaryPartialName,
+                       PartialMIP partialMip) {
+        Variable[] lambda = addConvexCombination(
+                breakpoints, values, functionInput, functionOutputs, auxiliaryPartialName, partialMip);
+        int numberOfPieces = lambda.length - 1;
+        Variable[] z = new Variable[numberOfPieces + 1];
+        Constraint zCount = new Constraint(CompareType.EQ, 1);
+        for (int i = 1; i <= numberOfPieces; i++) {
+            String varName = auxiliaryPartialName.concat(linearPieceVariableName).concat(String.valueOf(i));
+            z[i] = new Variable(varName, VarType.BOOLEAN, 0, 1);
+            partialMip.addVariable(z[i]);
+            zCount.addTerm(1, z[i]);
+        }
+        partialMip.addConstraint(zCount);
+        // lambda_j <= Z_j + Z_{j+1}
+        for (int j = 0; j <= numberOfPieces; j++) {
+            Constraint adjacent = new Constraint(CompareType.LEQ, 0);
+            adjacent.addTerm(1, lambda[j]);
+            if (j > 0) {
+                adjacent.addTerm(-1, z[j]);
+            }
+            if (j < numberOfPieces) {
+                adjacent.addTerm(-1, z[j + 1]);
+            }
+            partialMip.addConstraint(adjacent);
+        }
+    }
+
+    /**
+     * Adds the weights lambda_j in [0, 1] of the breakpoints and the constraints<br>
+     * sum_j lambda_j = 1, X = sum_j breakpoint_j * lambda_j and Y_m = sum_j value_{m,j} * lambda_j
+     *
+     * @return the weights, indexed like the breakpoints
+     */
+    static Variable[] addConvexCombination(double[] breakpoints,
+                                           double[][] values,
+                                           Variable functionInput,
+                                           List<Variable> functionOutputs,
+                                           String auxiliaryPartialName,
+                                           PartialMIP partialMip) {
+        Variable[] lambda = new Variable[breakpoints.length];
+        Constraint lambdaSum = new Constraint(CompareType.EQ, 1);
+        Constraint xSum = new Constraint(CompareType.EQ, 0);
+        xSum.addTerm(-1, functionInput);
+        Constraint[] ySums = new Constraint[values.length];
+        for (int m = 0; m < values.length; m++) {
+            ySums[m] = new Constraint(CompareType.EQ, 0);
+            ySums[m].addTerm(-1, functionOutputs.get(m));
+        }
+        for (int j = 0; j < breakpoints.length; j++) {
+            String varName = auxiliaryPartialName.concat(lambdaVariableName).concat(String.valueOf(j));
+            lambda[j] = new Variable(varName, VarType.DOUBLE, 0, 1);
+            partialMip.addVariable(lambda[j]);
+            lambdaSum.addTerm(1, lambda[j]);
+            xSum.addTerm(breakpoints[j], lambda[j]);
+            for (int m = 0; m < values.length; m++) {
+                ySums[m].addTerm(values[m][j], lambda[j]);
+            }
+        }
+        partialMip.addConstraint(lambdaSum);
+        partialMip.addConstraint(xSum);
+        for (Constraint ySum : ySums) {
+            partialMip.addConstraint(ySum);
+        }
+        return lambda;
+    }
+}
@@ -0,0 +1,80 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.mip.CompareType;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+
+import java.util.List;
+
+/**
+ * The logarithmic formulation of Vielma and Nemhauser: as in {@link LambdaPiecewiseLinearEncoding},
+ * X and Y are convex combinations of the breakpoints, but the linear piece is selected by
+ * the binary Gray code of its index, using only ceil(log2(k)) booleans B_l for k pieces.<br>
+ * For every bit l, the weights of all breakpoints whose adjacent pieces have bit l = 1 are bounded by B_l,
+ * and the weights of all breakpoints whose adjacent pieces have bit l = 0 are bounded by 1 - B_l.
+ * As the codes of adjacent pieces differ in exactly one bit, only the two breakpoints of the piece with code B
+ * may be non-zero.
+ */
+public class LogarithmicPiecewiseLinearEncoding implements PiecewiseLinearEncoding {
+
+    private static final String bitVariableName = "_B";
+
+    @Override
+    public void encode(double[] breakpoints,
+                       double[][] values,
+                       Variable functionInput,
+                       List<Variable> functionOutputs,
+                       String auxiliaryPartialName,
+                       PartialMIP partialMip) {
+        Variable[] lambda = LambdaPiecewiseLinearEncoding.addConvexCombination(
+                breakpoints, values, functionInput, functionOutputs, auxiliaryPartialName, partialMip);
+        int numberOfPieces = lambda.length - 1;
+        for (int bit = 0; bit < numberOfBits(numberOfPieces); bit++) {
+            String varName = auxiliaryPartialName.concat(bitVariableName).concat(String.valueOf(bit + 1));
+            Variable b = new Variable(varName, VarType.BOOLEAN, 0, 1);
+            partialMip.addVariable(b);
+            // sum_{j in J+(l)} lambda_j - B_l <= 0
+            Constraint one = new Constraint(CompareType.LEQ, 0);
+            one.addTerm(-1, b);
+            // sum_{j in J0(l)} lambda_j + B_l <= 1
+            Constraint zero = new Constraint(CompareType.LEQ, 1);
+            zero.addTerm(1, b);
+            for (int j = 0; j <= numberOfPieces; j++) {
+                if (adjacentPiecesHaveBit(numberOfPieces, j, bit, true)) {
+                    one.addTerm(1, lambda[j]);
+                } else if (adjacentPiecesHaveBit(numberOfPieces, j, bit, false)) {
+                    zero.addTerm(1, lambda[j]);
+                }
+            }
+            partialMip.addConstraint(one);
+            partialMip.addConstraint(zero);
+        }
+    }
+
+    /**
+     * @return ceil(log2(numberOfPieces))
+     */
+    static int numberOfBits(int numberOfPieces) {
+        return 32 - Integer.numberOfLeadingZeros(numberOfPieces - 1);
+    }
+
+    /**
+     * The reflected binary Gray code of the piece with index piece in {0, ..., k-1}
+     */
+    static int grayCode(int piece) {
+        return piece ^ (piece >>> 1);
+    }
+
+    /**
+     * @return true iff all pieces adjacent to the breakpoint with index j in {0, ..., k} have the given value at bit
+     */
+    static boolean adjacentPiecesHaveBit(int numberOfPieces, int j, int bit, boolean value) {
+        for (int piece = Math.max(0, j - 1); piece <= Math.min(j, numberOfPieces - 1); piece++) {
+            if ((((grayCode(piece) >>> bit) & 1) == 1) != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
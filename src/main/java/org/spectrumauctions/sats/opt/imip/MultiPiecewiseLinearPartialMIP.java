@@ -0,0 +1,123 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import com.google.common.base.Preconditions;
+import edu.harvard.econcs.jopt.solver.mip.MIP;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.OutputDirection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.DoubleStream;
+
+/**
+ * Encodes Y_m = f_m(X) for several continuous piecewise linear functions f_m of the same input X.<br>
+ * Instead of one {@link PiecewiseLinearPartialMIP} per function, each with its own auxiliary variables,
+ * the functions are encoded over the union of their breakpoints with a single set of auxiliary variables
+ * selecting the linear piece. All functions must have the same domain.<br>
+ * With {@link Encoding#AUTOMATIC}, functions for which the {@link Encoding#BINARY_FREE} encoding is exact are
+ * encoded without auxiliary variables, and the remaining ones share a {@link Encoding#CONDITIONAL_X} encoding.
+ */
+public final class MultiPiecewiseLinearPartialMIP extends PartialMIP {
+
+    private final List<PiecewiseLinearPartialMIP> binaryFreePartialMips = new ArrayList<>();
+    private final int numberOfSharedFunctions;
+    private final int numberOfBreakpoints;
+
+    /**
+     * @param funcs the functions f_m
+     * @param functionInput the common input X
+     * @param functionOutputs the outputs Y_m, in the same order as the functions
+     * @param auxiliaryPartialName the prefix of the names of the auxiliary variables
+     * @param outputDirection how the objective acts on the function outputs
+     * @param encoding the formulation of the functions
+     */
+    public MultiPiecewiseLinearPartialMIP(List<ContinuousPiecewiseLinearFunction> funcs,
+                                          Variable functionInput,
+                                          List<Variable> functionOutputs,
+                                          String auxiliaryPartialName,
+                                          OutputDirection outputDirection,
+                                          Encoding encoding) {
+        super();
+        Preconditions.checkArgument(!funcs.isEmpty());
+        Preconditions.checkArgument(funcs.size() == functionOutputs.size(), "One output per function required");
+        List<CompiledPiecewiseLinearFunction> sharedFuncs = new ArrayList<>();
+        List<Variable> sharedOutputs = new ArrayList<>();
+        for (int m = 0; m < funcs.size(); m++) {
+            ContinuousPiecewiseLinearFunction func = funcs.get(m);
+            boolean binaryFree = encoding == Encoding.BINARY_FREE
+                    || (encoding == Encoding.AUTOMATIC
+                    && PiecewiseLinearPartialMIP.isBinaryFreeExact(func, outputDirection));
+            if (binaryFree) {
+                binaryFreePartialMips.add(new PiecewiseLinearPartialMIP(func, functionInput, functionOutputs.get(m),
+                        auxiliaryPartialName.concat(String.valueOf(m)), outputDirection, Encoding.BINARY_FREE));
+            } else {
+                sharedFuncs.add(CompiledPiecewiseLinearFunction.of(func));
+                sharedOutputs.add(functionOutputs.get(m));
+            }
+        }
+        this.numberOfSharedFunctions = sharedFuncs.size();
+        if (sharedFuncs.isEmpty()) {
+            this.numberOfBreakpoints = 0;
+            return;
+        }
+        double[] x = mergedBreakpoints(sharedFuncs);
+        this.numberOfBreakpoints = x.length;
+        double[][] values = new double[sharedFuncs.size()][x.length];
+        for (int m = 0; m < sharedFuncs.size(); m++) {
+            for (int j = 0; j < x.length; j++) {
+                values[m][j] = sharedFuncs.get(m).getY(x[j]);
+            }
+        }
+        Encoding sharedEncoding = encoding == Encoding.AUTOMATIC ? Encoding.CONDITIONAL_X : encoding;
+        sharedEncoding.getStrategy().encode(x, values, functionInput, sharedOutputs, auxiliaryPartialName, this);
+    }
+
+    /**
+     * @return the union of the corner points of all functions, in increasing order
+     * @throws IllegalArgumentException if the functions have different domains
+     */
+    private static double[] mergedBreakpoints(List<CompiledPiecewiseLinearFunction> funcs) {
+        double lowest = funcs.get(0).getLowestX();
+        double highest = funcs.get(0).getHighestX();
+        for (CompiledPiecewiseLinearFunction func : funcs) {
+            Preconditions.checkArgument(func.getLowestX() == lowest && func.getHighestX() == highest,
+                    "All functions must have the same domain");
+        }
+        return funcs.stream().flatMapToDouble(func -> DoubleStream.of(func.getBreakpoints()))
+                .sorted().distinct().toArray();
+    }
+
+    /**
+     * @return the number of functions encoded with the shared auxiliary variables
+     */
+    public int getNumberOfSharedFunctions() {
+        return numberOfSharedFunctions;
+    }
+
+    /**
+     * @return the number of merged breakpoints of the functions encoded with the shared auxiliary variables
+     */
+    public int getNumberOfBreakpoints() {
+        return numberOfBreakpoints;
+    }
+
+    @Override
+    public Set<Variable> getVariables() {
+        Set<Variable> vars = super.getVariables();
+        for (PiecewiseLinearPartialMIP partialMip : binaryFreePartialMips) {
+            vars.addAll(partialMip.getVariables());
+        }
+        return vars;
+    }
+
+    @Override
+    public void appendConstraintsToMip(MIP mip) {
+        super.appendConstraintsToMip(mip);
+        for (PiecewiseLinearPartialMIP partialMip : binaryFreePartialMips) {
+            partialMip.appendConstraintsToMip(mip);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A mixed integer formulation of the constraint Y = f(X) for a continuous piecewise linear function f.
+ *
+ * @see PiecewiseLinearPartialMIP.Encoding
+ */
+public interface PiecewiseLinearEncoding {
+
+    /**
+     * Adds the auxiliary variables and constraints which ensure that the output equals the function value
+     * of the input, and that the input lies within the domain of the function.
+     *
+     * @param func the function to encode
+     * @param functionInput the variable X
+     * @param functionOutput the variable Y
+     * @param auxiliaryPartialName the prefix of the names of the auxiliary variables
+     * @param partialMip the partial MIP to which the auxiliary variables and constraints are added
+     */
+    default void encode(ContinuousPiecewiseLinearFunction func,
+                        Variable functionInput,
+                        Variable functionOutput,
+                        String auxiliaryPartialName,
+                        PartialMIP partialMip) {
+        CompiledPiecewiseLinearFunction compiled = CompiledPiecewiseLinearFunction.of(func);
+        encode(compiled.getBreakpoints(),
+                new double[][]{compiled.getValues()},
+                functionInput,
+                Collections.singletonList(functionOutput),
+                auxiliaryPartialName,
+                partialMip);
+    }
+
+    /**
+     * Encodes Y_m = f_m(X) for several continuous piecewise linear functions f_m of the same input, given by their
+     * values at common breakpoints. The auxiliary variables selecting the linear piece are shared by all functions.
+     *
+     * @param breakpoints the strictly increasing x-coordinates of the breakpoints
+     * @param values values[m][j] is the value of the m'th function at breakpoints[j]
+     * @param functionInput the variable X
+     * @param functionOutputs the variables Y_m
+     * @param auxiliaryPartialName the prefix of the names of the auxiliary variables
+     * @param partialMip the partial MIP to which the auxiliary variables and constraints are added
+     */
+    void encode(double[] breakpoints,
+                double[][] values,
+                Variable functionInput,
+                List<Variable> functionOutputs,
+                String auxiliaryPartialName,
+                PartialMIP partialMip);
+
+}
@@ -5,21 +5,16 @@
  */
 package org.spectrumauctions.sats.opt.imip;
 
+import com.google.common.base.Preconditions;
 import edu.harvard.econcs.jopt.solver.mip.MIP;
 import edu.harvard.econcs.jopt.solver.mip.CompareType;
 import edu.harvard.econcs.jopt.solver.mip.Constraint;
-import edu.harvard.econcs.jopt.solver.mip.VarType;
 import edu.harvard.econcs.jopt.solver.mip.Variable;
 import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
-import org.spectrumauctions.sats.core.util.math.LinearFunction;
-import org.spectrumauctions.sats.core.util.math.NotDifferentiableException;
 import org.spectrumauctions.sats.core.util.random.DoubleInterval;
 
-import java.math.BigDecimal;
-import java.util.AbstractMap.SimpleImmutableEntry;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -28,174 +23,237 @@ import java.util.Set;
  */
 public final class PiecewiseLinearPartialMIP extends PartialMIP {
 
-    private final String linearPieceVariableName = "_Z";
-    private final String conditionalXVariableName = "_condX";
-
     /**
-     * A boolean auxiliary variable Z_i, 
-     * one for each linear part of the piecewise linear function<br>
-     * It is 1 iff the function input lies in the i'th linear part 
-     * of the piecewise linear function
-     * Note, the indexing of the variable name is in {1, 2, 3, ..., k}
-     * and not in {0, 1, 2, ..., k-1} as in the file structure. Hence, avoid using this list 
-     * directly, but use {@link PiecewiseLinearPartialMIP#getZVar(int)} instead
+     * States how the objective acts on the output variable of the function.
      */
-    private List<Variable> linearPieceVariable;
+    public enum OutputDirection {
+        /**
+         * The output must be exactly equal to the function value.
+         */
+        EXACT,
+        /**
+         * A higher output never makes the objective worse, e.g., if the output contributes with a positive
+         * coefficient to a maximized objective. It then suffices to bound the output from above.
+         */
+        MAXIMIZED,
+        /**
+         * A lower output never makes the objective worse. It then suffices to bound the output from below.
+         */
+        MINIMIZED
+    }
 
     /**
-     * A double auxiliary variable condX_i, 
-     * one for each linear part of the piecewise linear function<br>
-     * condX_i = X iff Z_i = 1, condX_i = 0 otherwise, where X is the input
-     * of the piecewise linear function.<br><br>
-     * Note, the indexing of the variable name is in {1, 2, 3, ..., k}
-     * and not in {0, 1, 2, ..., k-1} as in the file structure. Hence, avoid using this list 
-     * directly, but use {@link PiecewiseLinearPartialMIP#getConditionalXVar(int)} instead
+     * The formulation used to encode the function.
      */
-    private List<Variable> conditionalXVariable;
+    public enum Encoding {
+        /**
+         * Uses {@link #BINARY_FREE} if it is exact for the function and the output direction,
+         * and {@link #CONDITIONAL_X} otherwise.
+         */
+        AUTOMATIC,
+        /**
+         * @see ConditionalXPiecewiseLinearEncoding
+         */
+        CONDITIONAL_X(new ConditionalXPiecewiseLinearEncoding()),
+        /**
+         * No auxiliary variables, the output is bounded by the line of every linear piece.
+         * This is only exact for linear functions, for concave functions with a maximized output,
+         * and for convex functions with a minimized output.
+         */
+        BINARY_FREE,
+        /**
+         * @see LambdaPiecewiseLinearEncoding
+         */
+        LAMBDA(new LambdaPiecewiseLinearEncoding()),
+        /**
+         * @see IncrementalPiecewiseLinearEncoding
+         */
+        INCREMENTAL(new IncrementalPiecewiseLinearEncoding()),
+        /**
+         * @see LogarithmicPiecewiseLinearEncoding
+         */
+        LOGARITHMIC(new LogarithmicPiecewiseLinearEncoding());
+
+        private final PiecewiseLinearEncoding strategy;
+
+        Encoding() {
+            this(null);
+        }
+
+        Encoding(PiecewiseLinearEncoding strategy) {
+            this.strategy = strategy;
+        }
+
+        /**
+         * @return the strategy of a mixed integer encoding, or null for {@link #AUTOMATIC} and {@link #BINARY_FREE}
+         */
+        PiecewiseLinearEncoding getStrategy() {
+            return strategy;
+        }
+    }
 
     private ContinuousPiecewiseLinearFunction func;
     private Variable functionInput;
     private Variable functionOutput;
     private String auxiliaryPartialName;
     private DoubleInterval inputRange;
+    private OutputDirection outputDirection;
+    private Encoding encoding;
+
+    // Piece i - 1 of the compiled function is the i'th linear piece
+    private CompiledPiecewiseLinearFunction compiled;
 
 
     public PiecewiseLinearPartialMIP(ContinuousPiecewiseLinearFunction func,
                                      Variable functionInput,
                                      Variable functionOutput,
                                      String auxiliaryPartialName) {
+        this(func, functionInput, functionOutput, auxiliaryPartialName, OutputDirection.EXACT);
+    }
+
+    /**
+     * Creates the partial MIP with an automatically chosen {@link Encoding}.
+     * @param outputDirection how the objective acts on the function output
+     */
+    public PiecewiseLinearPartialMIP(ContinuousPiecewiseLinearFunction func,
+                                     Variable functionInput,
+                                     Variable functionOutput,
+                                     String auxiliaryPartialName,
+                                     OutputDirection outputDirection) {
+        this(func, functionInput, functionOutput, auxiliaryPartialName, outputDirection, Encoding.AUTOMATIC);
+    }
+
+    /**
+     * @param outputDirection how the objective acts on the function output
+     * @param encoding the formulation of the function
+     * @throws IllegalArgumentException if {@link Encoding#BINARY_FREE} is requested, but not exact
+     * for the function and output direction
+     */
+    public PiecewiseLinearPartialMIP(ContinuousPiecewiseLinearFunction func,
+                                     Variable functionInput,
+                                     Variable functionOutput,
+                                     String auxiliaryPartialName,
+                                     OutputDirection outputDirection,
+                                     Encoding encoding) {
         super();
         this.func = func;
         this.functionInput = functionInput;
         this.functionOutput = functionOutput;
         this.auxiliaryPartialName = auxiliaryPartialName;
-        initAuxiliaryVariables();
+        this.outputDirection = Preconditions.checkNotNull(outputDirection);
+        this.compiled = CompiledPiecewiseLinearFunction.of(func);
+        boolean binaryFreeExact = isBinaryFreeExact(compiled, outputDirection);
+        if (encoding == Encoding.AUTOMATIC) {
+            this.encoding = binaryFreeExact ? Encoding.BINARY_FREE : Encoding.CONDITIONAL_X;
+        } else {
+            Preconditions.checkArgument(encoding != Encoding.BINARY_FREE || binaryFreeExact,
+                    "The binary free encoding is not exact for this function and output direction %s", outputDirection);
+            this.encoding = encoding;
+        }
+        if (this.encoding.strategy != null) {
+            this.encoding.strategy.encode(func, functionInput, functionOutput, auxiliaryPartialName, this);
+        }
     }
 
-    private Variable getZVar(int piecenumber) {
-        return linearPieceVariable.get(piecenumber - 1);
+    /**
+     * @return the encoding used, never {@link Encoding#AUTOMATIC}
+     */
+    public Encoding getEncoding() {
+        return encoding;
     }
 
-    private Variable getConditionalXVar(int piecenumber) {
-        return conditionalXVariable.get(piecenumber - 1);
+    /**
+     * @return true iff the {@link Encoding#BINARY_FREE} encoding is exact for the function and output direction
+     */
+    static boolean isBinaryFreeExact(ContinuousPiecewiseLinearFunction func, OutputDirection outputDirection) {
+        return isBinaryFreeExact(CompiledPiecewiseLinearFunction.of(func), outputDirection);
     }
 
-
-    private void initAuxiliaryVariables() {
-        this.linearPieceVariable = new ArrayList<>();
-        this.conditionalXVariable = new ArrayList<Variable>();
-        List<SimpleImmutableEntry<BigDecimal, BigDecimal>> cornerPoints = func.getCornerPoints();
-        for (int i = 1; i < cornerPoints.size(); i++) {
-            String varName = auxiliaryPartialName.concat(linearPieceVariableName).concat(String.valueOf(i));
-            this.linearPieceVariable.add(new Variable(varName, VarType.BOOLEAN, 0, 1));
-
-            varName = auxiliaryPartialName.concat(conditionalXVariableName).concat(String.valueOf(i));
-            this.conditionalXVariable.add(new Variable(varName, VarType.DOUBLE, this.functionInput.getLowerBound(), functionInput.getUpperBound()));
-        }
+    private static boolean isBinaryFreeExact(CompiledPiecewiseLinearFunction compiled, OutputDirection outputDirection) {
+        return compiled.isLinear()
+                || (compiled.isConcave() && outputDirection == OutputDirection.MAXIMIZED)
+                || (compiled.isConvex() && outputDirection == OutputDirection.MINIMIZED);
     }
 
-
     /**
-     * Returns a set of constraints which ensure that the auxiliary variables. 
-     * The general concept of how this is done is explained in <a href="http://yetanothermathprogrammingconsultant.blogspot.ch/2015/10/piecewise-linear-functions-in-mip-models.html"> this blog post </a>
+     * Returns the constraints which restrict the input to the domain of the function, if the
+     * {@link Encoding#BINARY_FREE} encoding is used. The auxiliary variables and constraints of the mixed integer
+     * encodings are added to this partial MIP by their {@link PiecewiseLinearEncoding} on construction.
      * @return
      */
     public Set<Constraint> constrainAuxiliaryVariables() {
-        Set<Constraint> result = new HashSet<>();
-        List<SimpleImmutableEntry<BigDecimal, BigDecimal>> cornerPoints = func.getCornerPoints();
-        // Ensure CornerX_{i-1} * Z_i <= condX_i <= CornerX_i * Z_i
-        for (int i = 1; i < cornerPoints.size(); i++) {
-            SimpleImmutableEntry<BigDecimal, BigDecimal> lowerCornerPoint = cornerPoints.get(i - 1);
-            SimpleImmutableEntry<BigDecimal, BigDecimal> higherCornerPoint = cornerPoints.get(i);
-            // First constraint CornerX_{i-1} * Z_i - condX_i <= 0
-            Constraint lowerC = new Constraint(CompareType.LEQ, 0);
-            lowerC.addTerm(lowerCornerPoint.getKey().doubleValue(), getZVar(i));
-            lowerC.addTerm(-1, getConditionalXVar(i));
-            result.add(lowerC);
-            // Second constraint condX_i  - CornerX_{i} * Z_i - <= 0
-            Constraint upperC = new Constraint(CompareType.LEQ, 0);
-            upperC.addTerm(higherCornerPoint.getKey().doubleValue() * (-1), getZVar(i));
-            upperC.addTerm(1, getConditionalXVar(i));
-            result.add(upperC);
-        }
-        // Ensure that exactly one Z_i = 1
-        Constraint zCount = new Constraint(CompareType.EQ, 1);
-        for (int i = 1; i < cornerPoints.size(); i++) {
-            zCount.addTerm(1, getZVar(i));
+        Preconditions.checkState(encoding.strategy == null,
+                "The auxiliary constraints of the %s encoding are part of the partial MIP", encoding);
+        return constrainInputRange();
+    }
+
+    /**
+     * Encodes the function without auxiliary variables. For a linear function, this is the single equation<br>
+     * Y = slope * X + intercept<br>
+     * otherwise, Y is bounded by the line of every linear piece i, i.e., <br>
+     * Y <= slope(i) * X + intercept(i) for a concave function and a maximized output, and<br>
+     * Y >= slope(i) * X + intercept(i) for a convex function and a minimized output.
+     * @return
+     */
+    public Set<Constraint> constrainFunctionOutputVariableBinaryFree() {
+        Preconditions.checkState(encoding == Encoding.BINARY_FREE,
+                "The constraints of the %s encoding are part of the partial MIP", encoding);
+        if (compiled.isLinear()) {
+            return Collections.singleton(lineConstraint(CompareType.EQ, 0));
         }
-        result.add(zCount);
-        // Ensure sum of all conditionalX is exaclty equal to the input X       Constraint zCount = new Constraint(CompareType.EQ, 1);
-        Constraint condXSum = new Constraint(CompareType.EQ, 0);
-        condXSum.addTerm(-1, functionInput);
-        for (int i = 1; i < cornerPoints.size(); i++) {
-            condXSum.addTerm(1, getConditionalXVar(i));
+        CompareType compareType = outputDirection == OutputDirection.MAXIMIZED ? CompareType.LEQ : CompareType.GEQ;
+        Set<Constraint> result = new HashSet<>();
+        for (int i = 0; i < compiled.getNumberOfPieces(); i++) {
+            result.add(lineConstraint(compareType, i));
         }
-        result.add(condXSum);
         return result;
     }
 
     /**
-     * Encodes the actual continuous piecewise linear function, i.e., the following term:<br>
-     * Y = \sum_{i =1}^r cornerY_{i-1}Z_i + slope(i) * condX_i  - slope(i) * cornerX_{i-1} * Z_i
-     *
-     * @see
-     * <a href="http://yetanothermathprogrammingconsultant.blogspot.ch/2015/10/piecewise-linear-functions-in-mip-models.html"> this blog post </a>
-     * @return
+     * Y - slope * X [compareType] intercept
      */
-    public Constraint constrainFunctionOutputVariable() {
-        Constraint c = new Constraint(CompareType.EQ, 0);
-        c.addTerm(-1, functionOutput);
-        List<SimpleImmutableEntry<BigDecimal, BigDecimal>> cornerPoints = func.getCornerPoints();
-        for (int i = 1; i < cornerPoints.size(); i++) {
-            BigDecimal lowerX = cornerPoints.get(i - 1).getKey();
-            BigDecimal higherX = cornerPoints.get(i).getKey();
-            LinearFunction inbetweenFunction;
-            try {
-                inbetweenFunction = func.functionAt(higherX);
-                throw new RuntimeException("point is a corner point. A NotDifferentiableException should be thrown");
-            } catch (NotDifferentiableException e) {
-                //This exception should be thrown, das we are requesting the function for a corner point.
-                inbetweenFunction = e.getLowerAdjacentFunction();
-            }
-            double yOfLowerX = func.getY(lowerX).doubleValue();
-            double slope = inbetweenFunction.getSlope().doubleValue();
-
-            //Add terms to function
-
-            //Term 1: cornerY_{i-1} * Z_i
-            c.addTerm(yOfLowerX, getZVar(i));
-            //Term 2: slope * condX_i
-            c.addTerm(slope, getConditionalXVar(i));
-            //Term 3: slope * cornerX_{i-1} * Z_i
-            c.addTerm((-1) * slope * lowerX.doubleValue(), getZVar(i));
-        }
+    private Constraint lineConstraint(CompareType compareType, int piece) {
+        Constraint c = new Constraint(compareType, compiled.getIntercept(piece));
+        c.addTerm(1, functionOutput);
+        c.addTerm(-compiled.getSlope(piece), functionInput);
         return c;
     }
 
-
-    @Override
-    public void appendVariablesToMip(MIP mip) {
-        for (Variable var : getVariables()) {
-            mip.add(var);
+    /**
+     * The lines of the pieces only describe the function within its domain, hence the input is restricted
+     * to the domain if its bounds are wider.
+     */
+    private Set<Constraint> constrainInputRange() {
+        Set<Constraint> result = new HashSet<>();
+        double lowestX = compiled.getLowestX();
+        double highestX = compiled.getHighestX();
+        if (functionInput.getLowerBound() < lowestX) {
+            Constraint lower = new Constraint(CompareType.GEQ, lowestX);
+            lower.addTerm(1, functionInput);
+            result.add(lower);
         }
+        if (functionInput.getUpperBound() > highestX) {
+            Constraint upper = new Constraint(CompareType.LEQ, highestX);
+            upper.addTerm(1, functionInput);
+            result.add(upper);
+        }
+        return result;
     }
 
-    @Override
-    public Set<Variable> getVariables() {
-        Set<Variable> vars = new HashSet<>();
-        vars.addAll(super.getVariables());
-        vars.addAll(linearPieceVariable);
-        vars.addAll(conditionalXVariable);
-        return vars;
-    }
 
     @Override
     public void appendConstraintsToMip(MIP mip) {
         super.appendConstraintsToMip(mip);
+        if (encoding.strategy != null) {
+            // The constraints of the strategy were added to this partial MIP on construction
+            return;
+        }
         for (Constraint constraint : constrainAuxiliaryVariables()) {
             mip.add(constraint);
         }
-        mip.add(constrainFunctionOutputVariable());
+        for (Constraint constraint : constrainFunctionOutputVariableBinaryFree()) {
+            mip.add(constraint);
+        }
     }
 
 
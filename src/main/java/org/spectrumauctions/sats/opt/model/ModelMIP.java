@@ -1,8 +1,14 @@
 package org.spectrumauctions.sats.opt.model;
 
 import edu.harvard.econcs.jopt.solver.SolveParam;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
 import edu.harvard.econcs.jopt.solver.mip.MIP;
 
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 /**
  * @author Fabio Isler
  */
@@ -49,4 +55,20 @@ public abstract class ModelMIP {
         mip.setSolveParam(SolveParam.TIME_LIMIT, timeLimit);
     }
 
+    /**
+     * Generates the constraints of the agents 0, ..., numberOfAgents - 1 concurrently and adds them to the mip
+     * in the order of the agents, such that the resulting mip does not depend on the thread scheduling.
+     * The generator must only read shared state, e.g., variables created beforehand.
+     *
+     * @param numberOfAgents the number of agents
+     * @param constraintsOfAgent generates the constraints of a single agent
+     */
+    protected void addConstraintsInParallel(int numberOfAgents, IntFunction<List<Constraint>> constraintsOfAgent) {
+        List<List<Constraint>> constraints = IntStream.range(0, numberOfAgents).parallel()
+                .mapToObj(constraintsOfAgent).collect(Collectors.toList());
+        for (List<Constraint> constraintsOfOneAgent : constraints) {
+            constraintsOfOneAgent.forEach(mip::add);
+        }
+    }
+
 }
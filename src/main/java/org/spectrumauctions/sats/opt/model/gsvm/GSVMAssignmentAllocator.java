@@ -0,0 +1,314 @@
+package org.spectrumauctions.sats.opt.model.gsvm;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMLicense;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMWorld;
+import org.spectrumauctions.sats.opt.model.EfficientAllocator;
+import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation;
+import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation.ItemAllocationBuilder;
+
+/**
+ * Exact, MIP-free efficient allocator for GSVM.<br>
+ * If the bundle size k_i of every agent is fixed, the value of agent i for license j is
+ * (1 + 0.2 * (k_i - 1)) * v_ij, independent of her other licenses. The efficient allocation for a fixed vector of
+ * bundle sizes is thus a rectangular assignment problem (k_i slots per agent, one per license), solved by the
+ * {@link HungarianAlgorithm}. The vectors of bundle sizes are enumerated by a branch and bound, which prunes vectors
+ * whose upper bound (every agent getting her k_i most valuable licenses) does not exceed the best allocation found
+ * so far. The search tree is processed in parallel on a {@link ForkJoinPool}.
+ */
+public class GSVMAssignmentAllocator implements EfficientAllocator<ItemAllocation<GSVMLicense>> {
+
+	private static final double EPSILON = 1e-9;
+	// Subtrees of the first SPLIT_DEPTH agents are processed as separate tasks
+	private static final int SPLIT_DEPTH = 2;
+
+	private final int n; // number of agents
+	private final int m; // number of items
+
+	private final GSVMWorld world;
+	private final List<GSVMBidder> population;
+	private final GSVMLicense[] licenses;
+	private final double[][] value;
+	private final boolean allowAssigningLicensesWithZeroBasevalue;
+	private final ForkJoinPool pool;
+
+	// maxSize[i]: largest bundle size considered for agent i
+	private final int[] maxSize;
+	// bestValue[i][k]: value of agent i for her k most valuable licenses
+	private final double[][] bestValue;
+	// suffixBound[i][c]: upper bound on the value of agents i..n-1 sharing c licenses
+	private final double[][] suffixBound;
+
+	private final AtomicReference<Solution> incumbent = new AtomicReference<>();
+
+	public GSVMAssignmentAllocator(GSVMWorld world, List<GSVMBidder> population) {
+		this(world, population, true);
+	}
+
+	public GSVMAssignmentAllocator(GSVMWorld world, List<GSVMBidder> population,
+			boolean allowAssigningLicensesWithZeroBasevalue) {
+		this(world, population, allowAssigningLicensesWithZeroBasevalue, ForkJoinPool.commonPool());
+	}
+
+	public GSVMAssignmentAllocator(GSVMWorld world, List<GSVMBidder> population,
+			boolean allowAssigningLicensesWithZeroBasevalue, ForkJoinPool pool) {
+		this.world = world;
+		this.population = population;
+		this.allowAssigningLicensesWithZeroBasevalue = allowAssigningLicensesWithZeroBasevalue;
+		this.pool = pool;
+		n = population.size();
+		m = world.getLicenses().size();
+
+		licenses = new GSVMLicense[m];
+		for (GSVMLicense license : world.getLicenses()) {
+			licenses[(int) license.getId()] = license;
+		}
+		value = new double[n][m];
+		maxSize = new int[n];
+		bestValue = new double[n][];
+		for (int i = 0; i < n; i++) {
+			Map<Long, BigDecimal> baseValues = population.get(i).getBaseValues();
+			double[] sorted = new double[m];
+			int positive = 0;
+			for (int j = 0; j < m; j++) {
+				BigDecimal val = baseValues.get((long) j);
+				value[i][j] = val == null ? 0 : val.doubleValue();
+				sorted[j] = value[i][j];
+				if (value[i][j] > 0) {
+					positive++;
+				}
+			}
+			maxSize[i] = allowAssigningLicensesWithZeroBasevalue ? m : positive;
+			Arrays.sort(sorted);
+			bestValue[i] = new double[maxSize[i] + 1];
+			double sum = 0;
+			for (int k = 1; k <= maxSize[i]; k++) {
+				sum += sorted[m - k];
+				bestValue[i][k] = calculateComplementarityMarkup(k) * sum;
+			}
+		}
+		suffixBound = new double[n + 1][m + 1];
+		for (int i = n - 1; i >= 0; i--) {
+			for (int c = 0; c <= m; c++) {
+				double best = 0;
+				for (int k = 0; k <= Math.min(c, maxSize[i]); k++) {
+					best = Math.max(best, bestValue[i][k]);
+				}
+				suffixBound[i][c] = best + suffixBound[i + 1][c];
+			}
+		}
+	}
+
+	@Override
+	public ItemAllocation<GSVMLicense> calculateAllocation() {
+		incumbent.set(initialSolution());
+		pool.invoke(new SearchTask(new int[n], 0, m, 0));
+		Solution best = incumbent.get();
+
+		Map<Bidder<GSVMLicense>, Bundle<GSVMLicense>> allocation = new HashMap<>();
+		for (GSVMBidder bidder : population) {
+			allocation.put(bidder, new Bundle<>());
+		}
+		for (int j = 0; j < m; j++) {
+			if (best.agentOfLicense[j] >= 0) {
+				allocation.get(population.get(best.agentOfLicense[j])).add(licenses[j]);
+			}
+		}
+		BigDecimal totalValue = BigDecimal.ZERO;
+		for (GSVMBidder bidder : population) {
+			totalValue = totalValue.add(bidder.calculateValue(allocation.get(bidder)));
+		}
+		return new ItemAllocationBuilder<GSVMLicense>().withWorld(world).withTotalValue(totalValue)
+				.withAllocation(allocation).build();
+	}
+
+	/**
+	 * The best allocation giving all (assignable) licenses to a single agent, or the empty allocation
+	 */
+	private Solution initialSolution() {
+		Solution best = new Solution(0, new int[n], emptyAssignment());
+		for (int i = 0; i < n; i++) {
+			int[] sizes = new int[n];
+			sizes[i] = maxSize[i];
+			int[] agentOfLicense = emptyAssignment();
+			for (int j = 0; j < m; j++) {
+				if (allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0) {
+					agentOfLicense[j] = i;
+				}
+			}
+			Solution candidate = new Solution(bestValue[i][maxSize[i]], sizes, agentOfLicense);
+			if (candidate.isBetterThan(best)) {
+				best = candidate;
+			}
+		}
+		return best;
+	}
+
+	private int[] emptyAssignment() {
+		int[] agentOfLicense = new int[m];
+		Arrays.fill(agentOfLicense, -1);
+		return agentOfLicense;
+	}
+
+	/**
+	 * Solves the assignment problem for a complete vector of bundle sizes
+	 */
+	private void evaluate(int[] sizes) {
+		int slots = 0;
+		double maxWeight = 0;
+		for (int i = 0; i < n; i++) {
+			slots += sizes[i];
+			maxWeight = Math.max(maxWeight, bestValue[i][maxSize[i]]);
+		}
+		if (slots == 0) {
+			return;
+		}
+		// Infeasible assignments cost more than any feasible assignment could gain
+		double forbidden = 1 + maxWeight * n;
+		double[][] cost = new double[slots][m];
+		int[] agentOfSlot = new int[slots];
+		int slot = 0;
+		for (int i = 0; i < n; i++) {
+			double markup = calculateComplementarityMarkup(Math.max(1, sizes[i]));
+			for (int k = 0; k < sizes[i]; k++) {
+				agentOfSlot[slot] = i;
+				for (int j = 0; j < m; j++) {
+					boolean assignable = allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0;
+					cost[slot][j] = assignable ? -markup * value[i][j] : forbidden;
+				}
+				slot++;
+			}
+		}
+		int[] assignment = HungarianAlgorithm.solve(cost);
+		double welfare = 0;
+		int[] agentOfLicense = emptyAssignment();
+		for (slot = 0; slot < slots; slot++) {
+			int j = assignment[slot];
+			if (cost[slot][j] >= forbidden) {
+				return;
+			}
+			welfare -= cost[slot][j];
+			agentOfLicense[j] = agentOfSlot[slot];
+		}
+		offer(new Solution(welfare, sizes.clone(), agentOfLicense));
+	}
+
+	private void offer(Solution candidate) {
+		Solution current;
+		do {
+			current = incumbent.get();
+			if (!candidate.isBetterThan(current)) {
+				return;
+			}
+		} while (!incumbent.compareAndSet(current, candidate));
+	}
+
+	private boolean isPruned(double upperBound) {
+		return upperBound < incumbent.get().welfare - EPSILON;
+	}
+
+	private double calculateComplementarityMarkup(int tau) {
+		if (tau < 1) {
+			throw new IllegalArgumentException("Error: tau has to be >=1");
+		}
+		return 1 + (tau - 1) * 0.2;
+	}
+
+	/**
+	 * Branches on the bundle size of agent <code>agent</code>, given the sizes of all agents before.
+	 */
+	@SuppressWarnings("serial")
+	private final class SearchTask extends RecursiveAction {
+
+		private final int[] sizes;
+		private final int agent;
+		private final int capacity;
+		private final double partialBound;
+
+		private SearchTask(int[] sizes, int agent, int capacity, double partialBound) {
+			this.sizes = sizes;
+			this.agent = agent;
+			this.capacity = capacity;
+			this.partialBound = partialBound;
+		}
+
+		@Override
+		protected void compute() {
+			if (agent < SPLIT_DEPTH && agent < n) {
+				List<SearchTask> subtasks = new ArrayList<>();
+				for (int k = Math.min(capacity, maxSize[agent]); k >= 0; k--) {
+					double bound = partialBound + bestValue[agent][k] + suffixBound[agent + 1][capacity - k];
+					if (!isPruned(bound)) {
+						int[] childSizes = sizes.clone();
+						childSizes[agent] = k;
+						subtasks.add(new SearchTask(childSizes, agent + 1, capacity - k,
+								partialBound + bestValue[agent][k]));
+					}
+				}
+				invokeAll(subtasks);
+			} else {
+				search(sizes.clone(), agent, capacity, partialBound);
+			}
+		}
+
+		private void search(int[] sizes, int agent, int capacity, double partialBound) {
+			if (agent == n) {
+				if (!isPruned(partialBound)) {
+					evaluate(sizes);
+				}
+				return;
+			}
+			for (int k = Math.min(capacity, maxSize[agent]); k >= 0; k--) {
+				double bound = partialBound + bestValue[agent][k] + suffixBound[agent + 1][capacity - k];
+				if (!isPruned(bound)) {
+					sizes[agent] = k;
+					search(sizes, agent + 1, capacity - k, partialBound + bestValue[agent][k]);
+				}
+			}
+			sizes[agent] = 0;
+		}
+	}
+
+	private static final class Solution {
+		private final double welfare;
+		private final int[] sizes;
+		private final int[] agentOfLicense;
+
+		private Solution(double welfare, int[] sizes, int[] agentOfLicense) {
+			this.welfare = welfare;
+			this.sizes = sizes;
+			this.agentOfLicense = agentOfLicense;
+		}
+
+		/**
+		 * Higher welfare is better. Ties are broken by the lexicographically smallest vector of bundle sizes,
+		 * such that the result does not depend on the order in which the parallel tasks finish.
+		 */
+		private boolean isBetterThan(Solution other) {
+			if (welfare > other.welfare + EPSILON) {
+				return true;
+			}
+			if (welfare < other.welfare - EPSILON) {
+				return false;
+			}
+			for (int i = 0; i < sizes.length; i++) {
+				if (sizes[i] != other.sizes[i]) {
+					return sizes[i] < other.sizes[i];
+				}
+			}
+			return false;
+		}
+	}
+}
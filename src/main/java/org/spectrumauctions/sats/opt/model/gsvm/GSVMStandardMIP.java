@@ -1,10 +1,13 @@
 package org.spectrumauctions.sats.opt.model.gsvm;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.spectrumauctions.sats.core.model.Bidder;
 import org.spectrumauctions.sats.core.model.Bundle;
@@ -29,6 +32,7 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 	private int m; // number of items
 
 	private Variable[][][] G;
+	private Variable[][] S;
 	private double[][] value;
 	private int[] tauHat;
 
@@ -37,6 +41,29 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 	private GSVMWorld world;
 
 	private boolean allowAssigningLicensesWithZeroBasevalue;
+	private Formulation formulation = Formulation.STANDARD;
+	private boolean presolve = false;
+	private boolean built = false;
+
+	/**
+	 * The way the bundle size of each agent is linked to the tau index of her allocated licenses.
+	 */
+	public enum Formulation {
+		/**
+		 * One Tau constraint per (license, agent), each summing over all licenses of the agent:
+		 * O(n * m^2 * tauHat) non-zeros.
+		 */
+		STANDARD,
+		/**
+		 * One binary bundle size indicator S[i][tau] per agent and bundle size, with
+		 * sum_tau S[i][tau] <= 1 and sum_j G[i][j][tau] = (tau + 1) * S[i][tau]:
+		 * O(n * m * tauHat) non-zeros. Yields the same optimal value as {@link #STANDARD}.
+		 */
+		COMPACT
+	}
+
+	// Populations with at least this many (agent, license) pairs fill the value matrix in parallel
+	private static final int PARALLEL_INIT_THRESHOLD = 10000;
 
 	public GSVMStandardMIP(GSVMWorld world, List<GSVMBidder> population) {
 		this(world, population, true);
@@ -57,11 +84,11 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		value = new double[n][m];
 		getMip().setObjectiveMax(true);
 		initValues();
-		initVariables();
 	}
 
 	@Override
 	public ItemAllocation<GSVMLicense> calculateAllocation() {
+		build();
 		SolverClient solver = new SolverClient();
 		IMIPResult result = solver.solve(getMip());
 
@@ -71,7 +98,7 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 			GSVMBidder bidder = population.get(i);
 			Bundle<GSVMLicense> bundle = new Bundle<>();
 			for (int j = 0; j < m; j++) {
-				if (allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0) {
+				if (isAssignable(i, j)) {
 					for (int tau = 0; tau < tauHat[i]; tau++) {
 						if (result.getValue(G[i][j][tau]) == 1) {
 							bundle.add(licenseMap.get((long) j));
@@ -82,17 +109,68 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 			allocation.put(bidder, bundle);
 		}
 
+		double totalValue = result.getObjectiveValue();
+		if (presolve && allowAssigningLicensesWithZeroBasevalue) {
+			totalValue += assignUnallocatedLicenses(allocation);
+		}
+
 		ItemAllocationBuilder<GSVMLicense> builder = new ItemAllocationBuilder<GSVMLicense>().withWorld(world)
-				.withTotalValue(BigDecimal.valueOf(result.getObjectiveValue())).withAllocation(allocation);
+				.withTotalValue(BigDecimal.valueOf(totalValue)).withAllocation(allocation);
 
 		return builder.build();
 	}
 
+	/**
+	 * Selects the formulation of the model. Has to be called before {@link #build()}.
+	 */
+	public void setFormulation(Formulation formulation) {
+		if (built) {
+			throw new IllegalStateException("Error: The formulation has to be selected before the model is built");
+		}
+		this.formulation = formulation;
+	}
+
+	public Formulation getFormulation() {
+		return formulation;
+	}
+
+	/**
+	 * If set, the model only contains assignments of licenses to agents with a positive base value for them,
+	 * and the tau range of each agent is capped at the number of such licenses (as if
+	 * <code>allowAssigningLicensesWithZeroBasevalue</code> was false). If assigning licenses with zero base value
+	 * is allowed, the licenses left unallocated by the model are assigned afterwards to the agent with the highest
+	 * allocated base value, which never lowers welfare.<br>
+	 * Note that the result is not guaranteed to be efficient w.r.t. the full model, which may prefer a different
+	 * allocation of the positively valued licenses because of the zero valued ones.
+	 * Has to be called before {@link #build()}.
+	 */
+	public void setPresolve(boolean presolve) {
+		if (built) {
+			throw new IllegalStateException("Error: Presolve has to be selected before the model is built");
+		}
+		this.presolve = presolve;
+	}
+
+	public boolean isPresolve() {
+		return presolve;
+	}
+
+	/**
+	 * Builds the model with the selected formulation and presolve mode. Called by {@link #calculateAllocation()}
+	 * if it has not been called before; calling it more than once has no effect.
+	 */
 	public void build() {
+		if (built) {
+			return;
+		}
+		built = true;
+		initTauHat();
+		initVariables();
+
 		// build objective term
 		for (int i = 0; i < n; i++) {
 			for (int j = 0; j < m; j++) {
-				if (allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0) {
+				if (isAssignable(i, j)) {
 					for (int tau = 0; tau < tauHat[i]; tau++) {
 						getMip().addObjectiveTerm(calculateComplementarityMarkup(tau + 1) * value[i][j], G[i][j][tau]);
 					}
@@ -104,7 +182,7 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		for (int j = 0; j < m; j++) {
 			Constraint constraint = new Constraint(CompareType.LEQ, 1, "SupplyConstraint j=" + j);
 			for (int i = 0; i < n; i++) {
-				if (allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0) {
+				if (isAssignable(i, j)) {
 					for (int tau = 0; tau < tauHat[i]; tau++) {
 						constraint.addTerm(1, G[i][j][tau]);
 					}
@@ -113,37 +191,128 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 			getMip().add(constraint);
 		}
 
+		if (formulation == Formulation.COMPACT) {
+			buildBundleSizeConstraints();
+			return;
+		}
+
 		// build Tau Constraint (2)
+		addConstraintsInParallel(n, this::tauConstraints);
+	}
+
+	private List<Constraint> tauConstraints(int i) {
+		List<Constraint> constraints = new ArrayList<>(m);
 		for (int j = 0; j < m; j++) {
-			for (int i = 0; i < n; i++) {
-				Constraint constraint = new Constraint(CompareType.GEQ, 0);
-				// build left part: Number of items agent i is allocated
-				for (int k = 0; k < m; k++) {
-					if (allowAssigningLicensesWithZeroBasevalue || value[i][k] > 0) {
-						for (int tau = 0; tau < tauHat[i]; tau++) {
-							constraint.addTerm(1, G[i][k][tau]);
-						}
+			Constraint constraint = new Constraint(CompareType.GEQ, 0);
+			// build left part: Number of items agent i is allocated
+			for (int k = 0; k < m; k++) {
+				if (isAssignable(i, k)) {
+					for (int tau = 0; tau < tauHat[i]; tau++) {
+						constraint.addTerm(1, G[i][k][tau]);
 					}
 				}
-				// build right part: Activate tau that matches the number of
-				// allocated items
-				for (int tau = 0; tau < tauHat[i]; tau++) {
-					if (allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0) {
-						constraint.addTerm(-(tau + 1), G[i][j][tau]);
-					}
+			}
+			// build right part: Activate tau that matches the number of
+			// allocated items
+			for (int tau = 0; tau < tauHat[i]; tau++) {
+				if (isAssignable(i, j)) {
+					constraint.addTerm(-(tau + 1), G[i][j][tau]);
 				}
-				getMip().add(constraint);
 			}
+			constraints.add(constraint);
 		}
+		return constraints;
+	}
+
+	/**
+	 * Assigns all licenses not allocated in the passed allocation to the agent whose allocated licenses
+	 * have the highest sum of base values, as each additional license raises her complementarity markup.
+	 *
+	 * @return the resulting increase in welfare
+	 */
+	private double assignUnallocatedLicenses(Map<Bidder<GSVMLicense>, Bundle<GSVMLicense>> allocation) {
+		Set<GSVMLicense> unallocated = new HashSet<>(licenseMap.values());
+		int bestAgent = -1;
+		double bestBaseValue = 0;
+		for (int i = 0; i < n; i++) {
+			Bundle<GSVMLicense> bundle = allocation.get(population.get(i));
+			unallocated.removeAll(bundle);
+			double baseValue = 0;
+			for (GSVMLicense license : bundle) {
+				baseValue += value[i][(int) license.getId()];
+			}
+			if (baseValue > bestBaseValue) {
+				bestAgent = i;
+				bestBaseValue = baseValue;
+			}
+		}
+		if (bestAgent < 0 || unallocated.isEmpty()) {
+			return 0;
+		}
+		allocation.get(population.get(bestAgent)).addAll(unallocated);
+		return bestBaseValue * (calculateComplementarityMarkup(unallocated.size() + 1) - 1);
+	}
+
+	private void buildBundleSizeConstraints() {
+		S = new Variable[n][];
+		for (int i = 0; i < n; i++) {
+			S[i] = new Variable[tauHat[i]];
+			// At most one bundle size per agent
+			Constraint oneSize = new Constraint(CompareType.LEQ, 1);
+			for (int tau = 0; tau < tauHat[i]; tau++) {
+				S[i][tau] = new Variable("s_i[" + i + "]t[" + tau + "]", VarType.BOOLEAN, 0, 1);
+				getMip().add(S[i][tau]);
+				oneSize.addTerm(1, S[i][tau]);
+			}
+			getMip().add(oneSize);
+		}
+		addConstraintsInParallel(n, this::linkingConstraints);
+	}
+
+	/**
+	 * Exactly tau + 1 licenses are allocated with index tau if and only if S[i][tau] is active
+	 */
+	private List<Constraint> linkingConstraints(int i) {
+		List<Constraint> constraints = new ArrayList<>(tauHat[i]);
+		for (int tau = 0; tau < tauHat[i]; tau++) {
+			Constraint linking = new Constraint(CompareType.EQ, 0);
+			for (int j = 0; j < m; j++) {
+				if (isAssignable(i, j)) {
+					linking.addTerm(1, G[i][j][tau]);
+				}
+			}
+			linking.addTerm(-(tau + 1), S[i][tau]);
+			constraints.add(linking);
+		}
+		return constraints;
 	}
 
 	private void initValues() {
+		// Index the population by id once. Agent i is the bidder with id i; agents without bidder have no values.
+		GSVMBidder[] agents = new GSVMBidder[n];
+		for (GSVMBidder bidder : population) {
+			long id = bidder.getId();
+			if (id >= 0 && id < n) {
+				if (agents[(int) id] != null) {
+					throw new IllegalStateException(
+							"Error: Multiple values for agent: " + id + " and license: 0 in population");
+				}
+				agents[(int) id] = bidder;
+			}
+		}
 
+		IntStream agentIndices = IntStream.range(0, n);
+		if ((long) n * m >= PARALLEL_INIT_THRESHOLD) {
+			agentIndices = agentIndices.parallel();
+		}
+		agentIndices.forEach(i -> initValues(i, agents[i]));
+	}
+
+	private void initTauHat() {
 		for (int i = 0; i < n; i++) {
 			int tauCounter = 0;
 			for (int j = 0; j < m; j++) {
-				value[i][j] = getValue(i, j).orElse(0);
-				if (allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0) {
+				if (isAssignable(i, j)) {
 					tauCounter++;
 				}
 			}
@@ -151,14 +320,16 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		}
 	}
 
-	private OptionalDouble getValue(int i, int j) {
-		return population.stream().filter(bidder -> bidder.getId() == i).mapToDouble(bidder -> {
-			BigDecimal val = bidder.getBaseValues().get((long) j);
-			return val == null ? 0 : val.doubleValue();
-		}).reduce((element, otherElement) -> {
-			throw new IllegalStateException(
-					"Error: Multiple values for agent: " + i + " and license: " + j + " in population");
-		});
+	private boolean isAssignable(int i, int j) {
+		return (allowAssigningLicensesWithZeroBasevalue && !presolve) || value[i][j] > 0;
+	}
+
+	private void initValues(int i, GSVMBidder agent) {
+		Map<Long, BigDecimal> baseValues = agent == null ? null : agent.getBaseValues();
+		for (int j = 0; j < m; j++) {
+			BigDecimal val = baseValues == null ? null : baseValues.get((long) j);
+			value[i][j] = val == null ? 0 : val.doubleValue();
+		}
 	}
 
 	private void initVariables() {
@@ -167,7 +338,7 @@ public class GSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 			G[i] = new Variable[m][];
 			for (int j = 0; j < m; j++) {
 				// only init variables where agent i has a positive base-value
-				if (allowAssigningLicensesWithZeroBasevalue || value[i][j] > 0) {
+				if (isAssignable(i, j)) {
 					G[i][j] = new Variable[tauHat[i]];
 					for (int tau = 0; tau < tauHat[i]; tau++) {
 						G[i][j][tau] = new Variable("g_i[" + i + "]j[" + j + "]t[" + tau + "]", VarType.BOOLEAN, 0, 1);
@@ -0,0 +1,84 @@
+package org.spectrumauctions.sats.opt.model.gsvm;
+
+import java.util.Arrays;
+
+/**
+ * Hungarian algorithm (Kuhn-Munkres with potentials) for rectangular minimum cost assignment problems,
+ * in which every row has to be assigned to a distinct column. Runs in O(rows^2 * columns).
+ */
+final class HungarianAlgorithm {
+
+	private HungarianAlgorithm() {
+	}
+
+	/**
+	 * @param cost
+	 *            cost[row][column], with at most as many rows as columns
+	 * @return the column assigned to each row in a minimum cost assignment
+	 */
+	static int[] solve(double[][] cost) {
+		int rows = cost.length;
+		if (rows == 0) {
+			return new int[0];
+		}
+		int columns = cost[0].length;
+		if (rows > columns) {
+			throw new IllegalArgumentException("Error: more rows than columns");
+		}
+		// Potentials and matching are 1-indexed, index 0 is the artificial root
+		double[] u = new double[rows + 1];
+		double[] v = new double[columns + 1];
+		int[] rowOfColumn = new int[columns + 1];
+		int[] way = new int[columns + 1];
+		double[] minv = new double[columns + 1];
+		boolean[] used = new boolean[columns + 1];
+
+		for (int row = 1; row <= rows; row++) {
+			rowOfColumn[0] = row;
+			int column0 = 0;
+			Arrays.fill(minv, Double.POSITIVE_INFINITY);
+			Arrays.fill(used, false);
+			do {
+				used[column0] = true;
+				int row0 = rowOfColumn[column0];
+				double delta = Double.POSITIVE_INFINITY;
+				int column1 = 0;
+				for (int column = 1; column <= columns; column++) {
+					if (!used[column]) {
+						double current = cost[row0 - 1][column - 1] - u[row0] - v[column];
+						if (current < minv[column]) {
+							minv[column] = current;
+							way[column] = column0;
+						}
+						if (minv[column] < delta) {
+							delta = minv[column];
+							column1 = column;
+						}
+					}
+				}
+				for (int column = 0; column <= columns; column++) {
+					if (used[column]) {
+						u[rowOfColumn[column]] += delta;
+						v[column] -= delta;
+					} else {
+						minv[column] -= delta;
+					}
+				}
+				column0 = column1;
+			} while (rowOfColumn[column0] != 0);
+			do {
+				int column1 = way[column0];
+				rowOfColumn[column0] = rowOfColumn[column1];
+				column0 = column1;
+			} while (column0 != 0);
+		}
+
+		int[] result = new int[rows];
+		for (int column = 1; column <= columns; column++) {
+			if (rowOfColumn[column] != 0) {
+				result[rowOfColumn[column] - 1] = column - 1;
+			}
+		}
+		return result;
+	}
+}
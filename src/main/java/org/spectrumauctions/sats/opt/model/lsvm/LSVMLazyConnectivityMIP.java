@@ -0,0 +1,338 @@
+package org.spectrumauctions.sats.opt.model.lsvm;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMBidder;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMGrid;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMLicense;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMWorld;
+import org.spectrumauctions.sats.opt.model.EfficientAllocator;
+import org.spectrumauctions.sats.opt.model.ModelMIP;
+import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation;
+import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation.ItemAllocationBuilder;
+
+import edu.harvard.econcs.jopt.solver.IMIPResult;
+import edu.harvard.econcs.jopt.solver.SolveParam;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
+import edu.harvard.econcs.jopt.solver.mip.CompareType;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+
+/**
+ * Efficient allocator for the Local-Synergy Value Model which adds the connectivity constraints lazily.<br>
+ * As in {@link LSVMStandardMIP}, A_ijt = 1 means that agent i gets license j and claims that the component of
+ * license j in her bundle has size t + 1. Instead of path variables for every edge and path length, the relaxed
+ * model only bounds the claimed size by the size of the agent's bundle. After each solve, the components of the
+ * bundles are computed. If license j of agent i claims a size larger than its component C, the vertex separator cut
+ * <br>
+ * sum_{t >= |C|} A_ijt <= sum_{s in N(C)} sum_t A_ist<br>
+ * is added, where N(C) are the licenses adjacent to C: the component of j can only be larger than C if the agent
+ * gets a license of N(C). The model is re-solved until no claimed size is violated. As the complementarity factors
+ * are increasing in the component size, the final solution is then efficient.
+ */
+public class LSVMLazyConnectivityMIP extends ModelMIP implements EfficientAllocator<ItemAllocation<LSVMLicense>> {
+
+	private static final Logger logger = LogManager.getLogger(LSVMLazyConnectivityMIP.class);
+
+	private int n; // number of agents
+	private int m; // number of items
+
+	private double[][] v;
+
+	private List<LSVMBidder> population;
+	private LSVMLicense[] licenses;
+	private LSVMWorld world;
+
+	// neighbours[j]: the licenses adjacent to license j in the grid
+	private int[][] neighbours;
+
+	private Variable[][][] A;
+	private Variable[] S; // bundle size of agent i
+
+	// cuts.get(i * m + j): the components of the cuts added for agent i and license j
+	private Map<Integer, Set<BitSet>> cuts = new HashMap<>();
+	private int numberOfCuts = 0;
+	private int iterations = 0;
+
+	public LSVMLazyConnectivityMIP(LSVMWorld world, List<LSVMBidder> population) {
+		this.world = world;
+		this.population = population;
+
+		m = world.getLicenses().size();
+		n = population.size();
+
+		licenses = new LSVMLicense[m];
+		for (LSVMLicense license : world.getLicenses()) {
+			licenses[(int) license.getId()] = license;
+		}
+
+		// init MIP
+		getMip().setObjectiveMax(true);
+		getMip().setSolveParam(SolveParam.TIME_LIMIT, 3600.0);
+
+		initBaseValues();
+		initNeighbours();
+		initVariables();
+
+		buildObjectiveTerm();
+		buildSupplyConstraints();
+		buildBundleSizeConstraints();
+		buildNeighbourCuts();
+	}
+
+	@Override
+	public ItemAllocation<LSVMLicense> calculateAllocation() {
+		SolverClient solver = new SolverClient();
+		boolean[][] assigned;
+		while (true) {
+			iterations++;
+			IMIPResult result = solver.solve(getMip());
+			assigned = new boolean[n][m];
+			int[][] claimedSize = new int[n][m];
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < m; j++) {
+					for (int t = 0; t < m; t++) {
+						if (result.getValue(A[i][j][t]) > 0.5) {
+							assigned[i][j] = true;
+							claimedSize[i][j] = t + 1;
+						}
+					}
+				}
+			}
+			int added = separate(assigned, claimedSize);
+			logger.info("Lazy connectivity iteration {}: objective value {}, {} cuts added", iterations,
+					result.getObjectiveValue(), added);
+			if (added == 0) {
+				break;
+			}
+		}
+
+		Map<Bidder<LSVMLicense>, Bundle<LSVMLicense>> allocation = new HashMap<>();
+		BigDecimal totalValue = BigDecimal.ZERO;
+		for (int i = 0; i < n; i++) {
+			Bundle<LSVMLicense> bundle = new Bundle<>();
+			for (int j = 0; j < m; j++) {
+				if (assigned[i][j]) {
+					bundle.add(licenses[j]);
+				}
+			}
+			allocation.put(population.get(i), bundle);
+			totalValue = totalValue.add(population.get(i).calculateValue(bundle));
+		}
+
+		ItemAllocationBuilder<LSVMLicense> builder = new ItemAllocationBuilder<LSVMLicense>().withWorld(world)
+				.withTotalValue(totalValue).withAllocation(allocation);
+
+		return builder.build();
+	}
+
+	/**
+	 * @return the number of times the model was solved in {@link #calculateAllocation()}
+	 */
+	public int getNumberOfIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return the number of connectivity cuts in the model, including the initial cuts for single licenses
+	 */
+	public int getNumberOfCuts() {
+		return numberOfCuts;
+	}
+
+	/**
+	 * Adds a vertex separator cut for every license claiming a size larger than its component
+	 *
+	 * @return the number of cuts added
+	 */
+	private int separate(boolean[][] assigned, int[][] claimedSize) {
+		int added = 0;
+		int violated = 0;
+		for (int i = 0; i < n; i++) {
+			for (BitSet component : components(assigned[i])) {
+				for (int j = component.nextSetBit(0); j >= 0; j = component.nextSetBit(j + 1)) {
+					if (claimedSize[i][j] > component.cardinality()) {
+						violated++;
+						if (addCut(i, j, component)) {
+							added++;
+						}
+					}
+				}
+			}
+		}
+		if (violated > 0 && added == 0) {
+			// The solver returned a solution violating cuts which are already in the model
+			logger.warn("{} violated connectivity cuts are already part of the model, stopping", violated);
+		}
+		return added;
+	}
+
+	private boolean addCut(int i, int j, BitSet component) {
+		if (!cuts.computeIfAbsent(i * m + j, k -> new HashSet<>()).add(component)) {
+			return false;
+		}
+		numberOfCuts++;
+		BitSet separator = new BitSet(m);
+		for (int x = component.nextSetBit(0); x >= 0; x = component.nextSetBit(x + 1)) {
+			for (int s : neighbours[x]) {
+				separator.set(s);
+			}
+		}
+		separator.andNot(component);
+
+		Constraint constraint = new Constraint(CompareType.LEQ, 0);
+		for (int t = component.cardinality(); t < m; t++) {
+			constraint.addTerm(1, A[i][j][t]);
+		}
+		for (int s = separator.nextSetBit(0); s >= 0; s = separator.nextSetBit(s + 1)) {
+			for (int t = 0; t < m; t++) {
+				constraint.addTerm(-1, A[i][s][t]);
+			}
+		}
+		getMip().add(constraint);
+		return true;
+	}
+
+	/**
+	 * The connected components of a bundle
+	 */
+	private List<BitSet> components(boolean[] bundle) {
+		List<BitSet> components = new ArrayList<>();
+		boolean[] visited = new boolean[m];
+		for (int start = 0; start < m; start++) {
+			if (!bundle[start] || visited[start]) {
+				continue;
+			}
+			BitSet component = new BitSet(m);
+			Deque<Integer> queue = new ArrayDeque<>();
+			queue.add(start);
+			visited[start] = true;
+			while (!queue.isEmpty()) {
+				int x = queue.poll();
+				component.set(x);
+				for (int y : neighbours[x]) {
+					if (bundle[y] && !visited[y]) {
+						visited[y] = true;
+						queue.add(y);
+					}
+				}
+			}
+			components.add(component);
+		}
+		return components;
+	}
+
+	private void buildObjectiveTerm() {
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				for (int t = 0; t < m; t++) {
+					double value = population.get(i).calculateFactor(t + 1) * v[i][j];
+					getMip().addObjectiveTerm(value, A[i][j][t]);
+				}
+			}
+		}
+	}
+
+	private void buildSupplyConstraints() {
+		for (int j = 0; j < m; j++) {
+			Constraint constraint = new Constraint(CompareType.LEQ, 1);
+			for (int i = 0; i < n; i++) {
+				for (int t = 0; t < m; t++) {
+					constraint.addTerm(1, A[i][j][t]);
+				}
+			}
+			getMip().add(constraint);
+		}
+	}
+
+	/**
+	 * S_i = sum_jt A_ijt and sum_t (t + 1) * A_ijt <= S_i: no license claims a component larger than the bundle
+	 */
+	private void buildBundleSizeConstraints() {
+		for (int i = 0; i < n; i++) {
+			Constraint definition = new Constraint(CompareType.EQ, 0);
+			definition.addTerm(-1, S[i]);
+			for (int j = 0; j < m; j++) {
+				for (int t = 0; t < m; t++) {
+					definition.addTerm(1, A[i][j][t]);
+				}
+			}
+			getMip().add(definition);
+
+			for (int j = 0; j < m; j++) {
+				Constraint constraint = new Constraint(CompareType.LEQ, 0);
+				constraint.addTerm(-1, S[i]);
+				for (int t = 0; t < m; t++) {
+					constraint.addTerm(t + 1, A[i][j][t]);
+				}
+				getMip().add(constraint);
+			}
+		}
+	}
+
+	/**
+	 * The cuts for single licenses: a license can only be in a component of size > 1 if the agent gets a neighbour
+	 */
+	private void buildNeighbourCuts() {
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				BitSet single = new BitSet(m);
+				single.set(j);
+				addCut(i, j, single);
+			}
+		}
+	}
+
+	private void initBaseValues() {
+		v = new double[n][m];
+		for (int i = 0; i < n; i++) {
+			Map<Long, BigDecimal> baseValues = population.get(i).getBaseValues();
+			for (int j = 0; j < m; j++) {
+				v[i][j] = baseValues.getOrDefault((long) j, BigDecimal.ZERO).doubleValue();
+			}
+		}
+	}
+
+	private void initNeighbours() {
+		LSVMGrid grid = world.getGrid();
+		neighbours = new int[m][];
+		for (int j = 0; j < m; j++) {
+			List<Integer> adjacent = new ArrayList<>();
+			for (int x = 0; x < m; x++) {
+				if (grid.isNeighbor(licenses[x], licenses[j])) {
+					adjacent.add(x);
+				}
+			}
+			neighbours[j] = adjacent.stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	private void initVariables() {
+		A = new Variable[n][m][m];
+		S = new Variable[n];
+		for (int i = 0; i < n; i++) {
+			S[i] = new Variable(String.format("S_i[%d]", i), VarType.DOUBLE, 0, m);
+			getMip().add(S[i]);
+			for (int j = 0; j < m; j++) {
+				for (int t = 0; t < m; t++) {
+					A[i][j][t] = new Variable(String.format("A_i[%d]j[%d]t[%d]", i, j, t), VarType.BOOLEAN, 0, 1);
+					getMip().add(A[i][j][t]);
+				}
+			}
+		}
+	}
+}
@@ -5,13 +5,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.spectrumauctions.sats.core.model.Bidder;
 import org.spectrumauctions.sats.core.model.Bundle;
-import org.spectrumauctions.sats.core.model.cats.graphalgorithms.Vertex;
 import org.spectrumauctions.sats.core.model.lsvm.LSVMBidder;
 import org.spectrumauctions.sats.core.model.lsvm.LSVMGrid;
 import org.spectrumauctions.sats.core.model.lsvm.LSVMLicense;
@@ -21,8 +20,6 @@ import org.spectrumauctions.sats.opt.model.ModelMIP;
 import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation;
 import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation.ItemAllocationBuilder;
 
-import com.google.common.collect.ImmutableSet;
-
 import edu.harvard.econcs.jopt.solver.IMIPResult;
 import edu.harvard.econcs.jopt.solver.SolveParam;
 import edu.harvard.econcs.jopt.solver.client.SolverClient;
@@ -33,12 +30,34 @@ import edu.harvard.econcs.jopt.solver.mip.Variable;
 
 /**
  * This class implements a mip finding the efficient allocation in an instance
- * of the Local-Synergy Value Model
+ * of the Local-Synergy Value Model<br>
+ * The variables A_ijt and E_iec are stored in jagged arrays: rows of licenses and edges an agent cannot be assigned
+ * are null, and the bundle size and path length dimensions only range up to the number of licenses the agent can
+ * be assigned.
  *
  * @author Nicolas Küchler
  */
 public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<ItemAllocation<LSVMLicense>> {
 
+	/**
+	 * How the connectivity of the agents' bundles is encoded, i.e., how the bundle size claimed by the variables
+	 * A_ijt is bounded by the size of the component of license j.
+	 */
+	public enum ConnectivityFormulation {
+		/**
+		 * Binary variables E_iec for every pair of licenses and every valid path length between them:
+		 * O(n * m^3) variables.
+		 */
+		PATH_LENGTH,
+		/**
+		 * A single-commodity flow on the arcs of the grid: every component of a bundle contains a root, which
+		 * supplies one unit of flow for every other license of its component. The claimed size of a license is
+		 * bounded by a label, which is equal on all used arcs and bounded by the supply at roots:
+		 * O(n * (m + |grid arcs|)) variables besides A_ijt. Yields the same optimal value as {@link #PATH_LENGTH}.
+		 */
+		FLOW
+	}
+
 	private int n; // number of agents
 	private int m; // number of items
 
@@ -51,11 +70,58 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 	private Variable[][][] A;
 	private Variable[][][] E;
 
+	private boolean allowAssigningLicensesWithZeroBasevalue;
+	// tauHat[i]: number of licenses agent i can be assigned, i.e., her largest bundle size
+	private int[] tauHat;
+
 	private Edge[] edges;
-	private Map<Edge, Set<Integer>> validPathLengths = new HashMap<>();
+	private LSVMValidPathLengths validPathLengths;
+
+	// neighbours[j]: the licenses adjacent to license j in the grid
+	private int[][] neighbours;
+	// edgeMin[e] / edgeMax[e]: gMin and gMax of edge e
+	private int[] edgeMin;
+	private int[] edgeMax;
+	// validPathLength[e][c]: true iff c + 1 is a valid path length of edge e
+	private boolean[][] validPathLength;
+
+	private ConnectivityFormulation formulation;
+	// gridEdges[g]: the two adjacent licenses (lower id first) of the g-th edge of the grid
+	private int[][] gridEdges;
+	private Variable[][] R; // license j is a root of agent i
+	private Variable[][] Q; // flow supplied at license j
+	private Variable[][] L; // label of license j
+	private Variable[][] Y; // grid edge g is used by agent i
+	private Variable[][][] F; // flow on grid edge g, d = 0 from lower to higher id, d = 1 reverse
 
 	public LSVMStandardMIP(LSVMWorld world, List<LSVMBidder> population) {
+		this(world, population, true);
+	}
+
+	/**
+	 * @param allowAssigningLicensesWithZeroBasevalue
+	 *            if false, the variables of an agent are restricted to the licenses she has a positive base value
+	 *            for (her proximity, for regional bidders) and the edges between them. The model then scales with
+	 *            the size of the proximities instead of the grid. Note that this is a restriction of the allocation
+	 *            problem: a license without base value can still increase an agent's value by connecting or
+	 *            enlarging the components of her bundle, so the result is in general not efficient.
+	 */
+	public LSVMStandardMIP(LSVMWorld world, List<LSVMBidder> population,
+			boolean allowAssigningLicensesWithZeroBasevalue) {
+		this(world, population, allowAssigningLicensesWithZeroBasevalue, ConnectivityFormulation.PATH_LENGTH);
+	}
+
+	/**
+	 * @param allowAssigningLicensesWithZeroBasevalue
+	 *            see {@link #LSVMStandardMIP(LSVMWorld, List, boolean)}
+	 * @param formulation
+	 *            the encoding of the connectivity of the bundles
+	 */
+	public LSVMStandardMIP(LSVMWorld world, List<LSVMBidder> population,
+			boolean allowAssigningLicensesWithZeroBasevalue, ConnectivityFormulation formulation) {
 		this.world = world;
+		this.allowAssigningLicensesWithZeroBasevalue = allowAssigningLicensesWithZeroBasevalue;
+		this.formulation = formulation;
 
 		bidderMap = population.stream().collect(Collectors.toMap(b -> b.getId(), Function.identity()));
 		licenseMap = world.getLicenses().stream().collect(Collectors.toMap(l -> l.getId(), Function.identity()));
@@ -67,29 +133,48 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		v = new double[n][m];
 
 		// init A_{ijt}
-		A = new Variable[n][m][m];
+		A = new Variable[n][m][];
 
-		// init E_{iec}
-		int numberOfEdges = m * (m - 1) / 2;
-		E = new Variable[n][numberOfEdges][m];
+		if (formulation == ConnectivityFormulation.PATH_LENGTH) {
+			// init E_{iec}
+			int numberOfEdges = m * (m - 1) / 2;
+			E = new Variable[n][numberOfEdges][];
 
-		edges = new Edge[numberOfEdges];
+			edges = new Edge[numberOfEdges];
+			validPathLengths = LSVMValidPathLengths.of(world.getGrid().getNumberOfRows(),
+					world.getGrid().getNumberOfColumns());
+		}
 
 		// init MIP
 		getMip().setObjectiveMax(true);
 		getMip().setSolveParam(SolveParam.TIME_LIMIT, 3600.0);
 
 		initBaseValues();
+		initTauHat();
 		initA();
-		initEdge();
-		initE();
+		initNeighbours();
+		if (formulation == ConnectivityFormulation.PATH_LENGTH) {
+			initEdge();
+			initE();
+		} else {
+			initGridEdges();
+			initFlowVariables();
+		}
 
 		buildObjectiveTerm();
 		buildSupplyEvalConstraints();
-		buildEdgeSupplyConstraints();
-		buildNeighbourConstraints();
-		buildEdgeConstraints();
-		buildTauConstraints();
+		if (formulation == ConnectivityFormulation.PATH_LENGTH) {
+			buildEdgeSupplyConstraints();
+			buildNeighbourConstraints();
+			buildEdgeConstraints();
+			buildTauConstraints();
+		} else {
+			buildFlowConstraints();
+		}
+	}
+
+	public ConnectivityFormulation getConnectivityFormulation() {
+		return formulation;
 	}
 
 	@Override
@@ -101,9 +186,11 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		for (int i = 0; i < n; i++) {
 			Bundle<LSVMLicense> bundle = new Bundle<>();
 			for (int j = 0; j < m; j++) {
-				for (int t = 0; t < m; t++) {
-					if (result.getValue(A[i][j][t]) > 0) {
-						bundle.add(licenseMap.get((long) j));
+				if (A[i][j] != null) {
+					for (int t = 0; t < A[i][j].length; t++) {
+						if (result.getValue(A[i][j][t]) > 0) {
+							bundle.add(licenseMap.get((long) j));
+						}
 					}
 				}
 			}
@@ -119,7 +206,10 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 	private void buildObjectiveTerm() {
 		for (int i = 0; i < n; i++) {
 			for (int j = 0; j < m; j++) {
-				for (int t = 0; t < m; t++) {
+				if (A[i][j] == null) {
+					continue;
+				}
+				for (int t = 0; t < A[i][j].length; t++) {
 					double value = calculateComplementarityMarkup(t + 1, bidderMap.get((long) i)) * v[i][j];
 					getMip().addObjectiveTerm(value, A[i][j][t]);
 				}
@@ -131,8 +221,10 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		for (int j = 0; j < m; j++) {
 			Constraint constraint = new Constraint(CompareType.LEQ, 1);
 			for (int i = 0; i < n; i++) {
-				for (int t = 0; t < m; t++) {
-					constraint.addTerm(1, A[i][j][t]);
+				if (A[i][j] != null) {
+					for (int t = 0; t < A[i][j].length; t++) {
+						constraint.addTerm(1, A[i][j][t]);
+					}
 				}
 			}
 			getMip().add(constraint);
@@ -144,7 +236,7 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 			Constraint constraint = new Constraint(CompareType.LEQ, 1);
 			for (int i = 0; i < n; i++) {
 				for (int c = 0; c < m; c++) {
-					if (isValidPathLength(edges[e], c + 1)) {
+					if (hasE(i, e, c)) {
 						constraint.addTerm(1, E[i][e][c]);
 					}
 				}
@@ -154,67 +246,181 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 	}
 
 	private void buildNeighbourConstraints() {
-		for (int i = 0; i < n; i++) {
-			for (int e = 0; e < edges.length; e++) {
-				for (int c = 1; c < m; c++) { // only for c > 1
-					if (isValidPathLength(edges[e], c + 1)) {
-						Constraint constraint = new Constraint(CompareType.GEQ, 0);
-						constraint.addTerm(-1, E[i][e][c]);
-						for (int x : n(gMin(edges[e]))) {
-							int y = gMax(edges[e]);
-							if (x != y) {
-								int ne = fInv(x, y);
-								if (isValidPathLength(edges[ne], c)) {
-									constraint.addTerm(1, E[i][ne][c - 1]);
-								}
+		addConstraintsInParallel(n, this::neighbourConstraints);
+	}
+
+	private List<Constraint> neighbourConstraints(int i) {
+		List<Constraint> constraints = new ArrayList<>();
+		for (int e = 0; e < edges.length; e++) {
+			int y = edgeMax[e];
+			for (int c = 1; c < m; c++) { // only for c > 1
+				if (hasE(i, e, c)) {
+					Constraint constraint = new Constraint(CompareType.GEQ, 0);
+					constraint.addTerm(-1, E[i][e][c]);
+					for (int x : neighbours[edgeMin[e]]) {
+						if (x != y) {
+							int ne = fInv(x, y);
+							if (hasE(i, ne, c - 1)) {
+								constraint.addTerm(1, E[i][ne][c - 1]);
 							}
 						}
-						getMip().add(constraint);
 					}
+					constraints.add(constraint);
 				}
 			}
 		}
+		return constraints;
 	}
 
 	private void buildEdgeConstraints() {
-		for (int i = 0; i < n; i++) {
-			for (int e = 0; e < edges.length; e++) {
-				Constraint constraint = new Constraint(CompareType.GEQ, 0);
-				for (int c = 0; c < m; c++) {
-					if (isValidPathLength(edges[e], c + 1)) {
-						constraint.addTerm(-2, E[i][e][c]);
-					}
+		addConstraintsInParallel(n, this::edgeConstraints);
+	}
+
+	private List<Constraint> edgeConstraints(int i) {
+		List<Constraint> constraints = new ArrayList<>();
+		for (int e = 0; e < edges.length; e++) {
+			if (E[i][e] == null) {
+				// both licenses of the edge are needed for any E_iec
+				continue;
+			}
+			Constraint constraint = new Constraint(CompareType.GEQ, 0);
+			for (int c = 0; c < m; c++) {
+				if (hasE(i, e, c)) {
+					constraint.addTerm(-2, E[i][e][c]);
 				}
-				for (int j : f(edges[e])) {
-					for (int t = 0; t < m; t++) {
-						constraint.addTerm(1, A[i][j][t]);
-					}
+			}
+			for (int j : f(e)) {
+				for (int t = 0; t < A[i][j].length; t++) {
+					constraint.addTerm(1, A[i][j][t]);
 				}
-				getMip().add(constraint);
 			}
+			constraints.add(constraint);
 		}
+		return constraints;
 	}
 
 	private void buildTauConstraints() {
-		for (int i = 0; i < n; i++) {
-			for (int j = 0; j < m; j++) {
-				Constraint constraint = new Constraint(CompareType.LEQ, 1);
-				for (int t = 0; t < m; t++) {
-					constraint.addTerm(t + 1, A[i][j][t]);
-				}
+		addConstraintsInParallel(n, this::tauConstraints);
+	}
 
-				for (int x = 0; x < m; x++) {
-					if (x != j) {
-						for (int c = 0; c < m; c++) {
-							int e = fInv(x, j);
-							if (isValidPathLength(edges[e], c + 1)) {
-								constraint.addTerm(-1, E[i][e][c]);
-							}
+	private List<Constraint> tauConstraints(int i) {
+		List<Constraint> constraints = new ArrayList<>();
+		for (int j = 0; j < m; j++) {
+			if (A[i][j] == null) {
+				continue;
+			}
+			Constraint constraint = new Constraint(CompareType.LEQ, 1);
+			for (int t = 0; t < A[i][j].length; t++) {
+				constraint.addTerm(t + 1, A[i][j][t]);
+			}
+
+			for (int x = 0; x < m; x++) {
+				if (x != j) {
+					int e = fInv(x, j);
+					for (int c = 0; c < m; c++) {
+						if (hasE(i, e, c)) {
+							constraint.addTerm(-1, E[i][e][c]);
 						}
 					}
 				}
-				getMip().add(constraint);
 			}
+			constraints.add(constraint);
+		}
+		return constraints;
+	}
+
+	/**
+	 * The constraints of the {@link ConnectivityFormulation#FLOW} formulation, with x_ij = sum_t A_ijt:<br>
+	 * R_ij <= x_ij, Q_ij <= m * R_ij (only roots supply flow)<br>
+	 * inflow_ij - outflow_ij = x_ij - Q_ij (every other license of the bundle consumes one unit)<br>
+	 * F_igd <= (m - 1) * Y_ig, Y_ig <= x_iu, Y_ig <= x_iv (flow only on used edges within the bundle)<br>
+	 * |L_iu - L_iv| <= m * (1 - Y_ig) (equal labels along used edges)<br>
+	 * L_ij <= Q_ij + m * (1 - R_ij) (the label of a root is at most the size of its part of the component)<br>
+	 * sum_t (t + 1) * A_ijt <= L_ij (the claimed size is at most the label)
+	 */
+	private void buildFlowConstraints() {
+		addConstraintsInParallel(n, this::flowConstraints);
+	}
+
+	private List<Constraint> flowConstraints(int i) {
+		List<Constraint> constraints = new ArrayList<>();
+		for (int j = 0; j < m; j++) {
+			if (A[i][j] == null) {
+				continue;
+			}
+			Constraint rootInBundle = new Constraint(CompareType.LEQ, 0);
+			rootInBundle.addTerm(1, R[i][j]);
+			addAssignmentTerms(rootInBundle, -1, i, j);
+			constraints.add(rootInBundle);
+
+			Constraint supplyAtRoot = new Constraint(CompareType.LEQ, 0);
+			supplyAtRoot.addTerm(1, Q[i][j]);
+			supplyAtRoot.addTerm(-m, R[i][j]);
+			constraints.add(supplyAtRoot);
+
+			Constraint rootLabel = new Constraint(CompareType.LEQ, m);
+			rootLabel.addTerm(1, L[i][j]);
+			rootLabel.addTerm(-1, Q[i][j]);
+			rootLabel.addTerm(m, R[i][j]);
+			constraints.add(rootLabel);
+
+			Constraint claimedSize = new Constraint(CompareType.LEQ, 0);
+			for (int t = 0; t < A[i][j].length; t++) {
+				claimedSize.addTerm(t + 1, A[i][j][t]);
+			}
+			claimedSize.addTerm(-1, L[i][j]);
+			constraints.add(claimedSize);
+
+			Constraint conservation = new Constraint(CompareType.EQ, 0);
+			addAssignmentTerms(conservation, -1, i, j);
+			conservation.addTerm(1, Q[i][j]);
+			for (int g = 0; g < gridEdges.length; g++) {
+				if (Y[i][g] == null) {
+					continue;
+				}
+				if (gridEdges[g][0] == j) {
+					conservation.addTerm(1, F[i][g][1]);
+					conservation.addTerm(-1, F[i][g][0]);
+				} else if (gridEdges[g][1] == j) {
+					conservation.addTerm(1, F[i][g][0]);
+					conservation.addTerm(-1, F[i][g][1]);
+				}
+			}
+			constraints.add(conservation);
+		}
+
+		for (int g = 0; g < gridEdges.length; g++) {
+			if (Y[i][g] == null) {
+				continue;
+			}
+			int u = gridEdges[g][0];
+			int w = gridEdges[g][1];
+			for (int d = 0; d < 2; d++) {
+				Constraint capacity = new Constraint(CompareType.LEQ, 0);
+				capacity.addTerm(1, F[i][g][d]);
+				capacity.addTerm(-(m - 1), Y[i][g]);
+				constraints.add(capacity);
+			}
+			for (int j : gridEdges[g]) {
+				Constraint edgeInBundle = new Constraint(CompareType.LEQ, 0);
+				edgeInBundle.addTerm(1, Y[i][g]);
+				addAssignmentTerms(edgeInBundle, -1, i, j);
+				constraints.add(edgeInBundle);
+			}
+			for (int d = 0; d < 2; d++) {
+				Constraint equalLabels = new Constraint(CompareType.LEQ, m);
+				equalLabels.addTerm(1, L[i][d == 0 ? u : w]);
+				equalLabels.addTerm(-1, L[i][d == 0 ? w : u]);
+				equalLabels.addTerm(m, Y[i][g]);
+				constraints.add(equalLabels);
+			}
+		}
+		return constraints;
+	}
+
+	private void addAssignmentTerms(Constraint constraint, double coefficient, int i, int j) {
+		for (int t = 0; t < A[i][j].length; t++) {
+			constraint.addTerm(coefficient, A[i][j][t]);
 		}
 	}
 
@@ -227,10 +433,25 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		}
 	}
 
+	private void initTauHat() {
+		tauHat = new int[n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				if (isAssignable(i, j)) {
+					tauHat[i]++;
+				}
+			}
+		}
+	}
+
 	private void initA() {
 		for (int i = 0; i < n; i++) {
 			for (int j = 0; j < m; j++) {
-				for (int t = 0; t < m; t++) {
+				if (!isAssignable(i, j)) {
+					continue;
+				}
+				A[i][j] = new Variable[tauHat[i]];
+				for (int t = 0; t < tauHat[i]; t++) {
 					A[i][j][t] = new Variable(String.format("A_i[%d]j[%d]t[%d]", i, j, t), VarType.BOOLEAN, 0, 1);
 					getMip().add(A[i][j][t]);
 				}
@@ -238,40 +459,89 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		}
 	}
 
+	private void initNeighbours() {
+		LSVMGrid grid = world.getGrid();
+		neighbours = new int[m][];
+		for (int j = 0; j < m; j++) {
+			LSVMLicense jLicense = licenseMap.get((long) j);
+			neighbours[j] = IntStream.range(0, m).filter(x -> grid.isNeighbor(licenseMap.get((long) x), jLicense))
+					.toArray();
+		}
+	}
+
 	private void initEdge() {
+		edgeMin = new int[edges.length];
+		edgeMax = new int[edges.length];
+		validPathLength = new boolean[edges.length][m];
 		int index = 0;
 		for (int x = 0; x < m; x++) {
 			for (int y = x + 1; y < m; y++) {
 				edges[index] = new Edge(licenseMap.get((long) x), licenseMap.get((long) y));
-				buildValidPathLength(edges[index]);
+				edgeMin[index] = gMin(x, y);
+				edgeMax[index] = edgeMin[index] == x ? y : x;
+				for (int c = 0; c < m; c++) {
+					validPathLength[index][c] = validPathLengths.isValid(x, y, c + 1);
+				}
 				index++;
 			}
 		}
 	}
 
-	private void buildValidPathLength(Edge edge) {
-		LSVMGridGraph grid = new LSVMGridGraph(world.getGrid());
-		Set<Set<Vertex>> allPaths = grid.findAllPaths(grid.getVertex(edge.l1), grid.getVertex(edge.l2));
-
-		List<Set<Vertex>> sizeOrderedPaths = allPaths.stream().sorted((a1, a2) -> Integer.compare(a1.size(), a2.size()))
-				.collect(Collectors.toList());
-
-		List<Set<Vertex>> solution = new ArrayList<>();
+	private void initGridEdges() {
+		List<int[]> adjacent = new ArrayList<>();
+		for (int x = 0; x < m; x++) {
+			for (int y : neighbours[x]) {
+				if (x < y) {
+					adjacent.add(new int[] { x, y });
+				}
+			}
+		}
+		gridEdges = adjacent.toArray(new int[adjacent.size()][]);
+	}
 
-		for (Set<Vertex> current : sizeOrderedPaths) {
-			if (solution.stream().filter(sol -> current.containsAll(sol)).count() == 0l) {
-				solution.add(current);
+	private void initFlowVariables() {
+		R = new Variable[n][m];
+		Q = new Variable[n][m];
+		L = new Variable[n][m];
+		Y = new Variable[n][gridEdges.length];
+		F = new Variable[n][gridEdges.length][];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				if (!isAssignable(i, j)) {
+					continue;
+				}
+				R[i][j] = new Variable(String.format("R_i[%d]j[%d]", i, j), VarType.BOOLEAN, 0, 1);
+				Q[i][j] = new Variable(String.format("Q_i[%d]j[%d]", i, j), VarType.DOUBLE, 0, m);
+				L[i][j] = new Variable(String.format("L_i[%d]j[%d]", i, j), VarType.DOUBLE, 0, m);
+				getMip().add(R[i][j]);
+				getMip().add(Q[i][j]);
+				getMip().add(L[i][j]);
+			}
+			for (int g = 0; g < gridEdges.length; g++) {
+				if (!isAssignable(i, gridEdges[g][0]) || !isAssignable(i, gridEdges[g][1])) {
+					continue;
+				}
+				Y[i][g] = new Variable(String.format("Y_i[%d]g[%d]", i, g), VarType.BOOLEAN, 0, 1);
+				getMip().add(Y[i][g]);
+				F[i][g] = new Variable[2];
+				for (int d = 0; d < 2; d++) {
+					F[i][g][d] = new Variable(String.format("F_i[%d]g[%d]d[%d]", i, g, d), VarType.DOUBLE, 0, m - 1);
+					getMip().add(F[i][g][d]);
+				}
 			}
 		}
-		Set<Integer> valid = solution.stream().map(path -> path.size() - 1).collect(Collectors.toSet());
-		validPathLengths.put(edge, valid);
 	}
 
 	private void initE() {
 		for (int i = 0; i < n; i++) {
 			for (int e = 0; e < edges.length; e++) {
-				for (int c = 0; c < m; c++) {
-					if (isValidPathLength(edges[e], c + 1)) {
+				if (!isAssignable(i, edgeMin[e]) || !isAssignable(i, edgeMax[e])) {
+					continue;
+				}
+				// a path of length c + 1 consists of c + 2 licenses
+				E[i][e] = new Variable[Math.max(0, tauHat[i] - 1)];
+				for (int c = 0; c < E[i][e].length; c++) {
+					if (validPathLength[e][c]) {
 						E[i][e][c] = new Variable(String.format("E_i[%d]e[%d]c[%d]", i, e, c), VarType.BOOLEAN, 0, 1);
 						getMip().add(E[i][e][c]);
 					}
@@ -280,8 +550,12 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		}
 	}
 
-	private boolean isValidPathLength(Edge edge, int pathLength) {
-		return validPathLengths.get(edge).contains(pathLength);
+	private boolean isAssignable(int i, int j) {
+		return allowAssigningLicensesWithZeroBasevalue || v[i][j] > 0;
+	}
+
+	private boolean hasE(int i, int e, int c) {
+		return E[i][e] != null && c < E[i][e].length && E[i][e][c] != null;
 	}
 
 	private double calculateComplementarityMarkup(int tau, LSVMBidder bidder) {
@@ -291,12 +565,9 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		return bidder.calculateFactor(tau);
 	}
 
-	private Integer gMin(Edge e) {
-		int l1 = (int) e.l1.getId();
-		int l2 = (int) e.l2.getId();
-
-		int neighbourCountL1 = n(l1).size();
-		int neighbourCountL2 = n(l2).size();
+	private int gMin(int l1, int l2) {
+		int neighbourCountL1 = neighbours[l1].length;
+		int neighbourCountL2 = neighbours[l2].length;
 
 		if (neighbourCountL1 < neighbourCountL2) {
 			return l1;
@@ -309,41 +580,21 @@ public class LSVMStandardMIP extends ModelMIP implements EfficientAllocator<Item
 		}
 	}
 
-	private Integer gMax(Edge e) {
-		// return the other license on the edge not chosen by gMin
-		Set<Integer> immutableSet = f(e);
-		Integer minLicense = gMin(e);
-
-		Set<Integer> mutableSet = immutableSet.stream().filter(l -> l != minLicense).collect(Collectors.toSet());
-
-		assert mutableSet.size() == 1;
-		return mutableSet.iterator().next();
-	}
-
-	private Set<Integer> n(Integer j) {
-		LSVMGrid grid = world.getGrid();
-		LSVMLicense jLicense = licenseMap.get((long) j);
-		return licenseMap.values().stream().filter(x -> grid.isNeighbor(x, jLicense)).map(x -> (int) x.getId())
-				.collect(Collectors.toSet());
-
-	}
-
-	private Set<Integer> f(Edge e) {
-		return ImmutableSet.of((int) e.l1.getId(), (int) e.l2.getId());
+	private int[] f(int e) {
+		return new int[] { edgeMin[e], edgeMax[e] };
 	}
 
-	private Integer fInv(Integer l1, Integer l2) {
-		for (int e = 0; e < edges.length; e++) {
-			Edge edge = edges[e];
-
-			Integer el1 = (int) edge.l1.getId();
-			Integer el2 = (int) edge.l2.getId();
-
-			if ((el1 == l1 && el2 == l2) || (el1 == l2 && el2 == l1)) {
-				return e;
-			}
+	/**
+	 * The index of the edge between l1 and l2, given the order (0,1), (0,2), ..., (0,m-1), (1,2), ... of
+	 * {@link #initEdge()}
+	 */
+	private int fInv(int l1, int l2) {
+		if (l1 == l2 || l1 < 0 || l2 < 0 || l1 >= m || l2 >= m) {
+			throw new IllegalStateException("Error: fInv edge not found");
 		}
-		throw new IllegalStateException("Error: fInv edge not found");
+		int x = Math.min(l1, l2);
+		int y = Math.max(l1, l2);
+		return x * (2 * m - x - 1) / 2 + (y - x - 1);
 	}
 
 	public class Edge {
@@ -0,0 +1,228 @@
+package org.spectrumauctions.sats.opt.model.lsvm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The valid path lengths of all pairs of licenses in an LSVM grid of a given shape.<br>
+ * A path length is valid for a pair of licenses if there is a path between them whose vertex set does not contain
+ * the vertex set of any other path between them. These are exactly the induced (chordless) paths, which are
+ * enumerated by one depth-first search per source license, extending a path only by licenses that are not adjacent
+ * to any earlier license on it. The searches of different sources run in parallel.<br>
+ * Licenses are identified by their id, which is row-major in the grid. The results only depend on the shape of the
+ * grid and are cached in memory and, if a directory is set by {@link #setDiskCacheDirectory(Path)}, on disk.
+ */
+public final class LSVMValidPathLengths {
+
+	private static final Logger logger = LogManager.getLogger(LSVMValidPathLengths.class);
+
+	private static final Map<String, LSVMValidPathLengths> cache = new ConcurrentHashMap<>();
+	private static volatile Path diskCacheDirectory = null;
+
+	private final int rows;
+	private final int columns;
+	private final int m;
+	// validLengths[edgeIndex(x, y)]: bit c is set iff c is a valid path length between x and y
+	private final BitSet[] validLengths;
+
+	private LSVMValidPathLengths(int rows, int columns, BitSet[] validLengths) {
+		this.rows = rows;
+		this.columns = columns;
+		this.m = rows * columns;
+		this.validLengths = validLengths;
+	}
+
+	/**
+	 * Returns the valid path lengths for a grid of the given shape, computing them only if they are neither
+	 * cached in memory nor on disk.
+	 */
+	public static LSVMValidPathLengths of(int rows, int columns) {
+		return cache.computeIfAbsent(rows + "x" + columns, key -> load(rows, columns));
+	}
+
+	/**
+	 * Sets the directory in which computed valid path lengths are stored and looked up, or null to disable
+	 * the disk cache (default).
+	 */
+	public static void setDiskCacheDirectory(Path directory) {
+		diskCacheDirectory = directory;
+	}
+
+	/**
+	 * @return true iff there is an induced path with <code>length</code> edges between the licenses x and y
+	 */
+	public boolean isValid(int x, int y, int length) {
+		return length >= 0 && validLengths[edgeIndex(x, y)].get(length);
+	}
+
+	public Set<Integer> getValidLengths(int x, int y) {
+		Set<Integer> result = new TreeSet<>();
+		BitSet lengths = validLengths[edgeIndex(x, y)];
+		for (int c = lengths.nextSetBit(0); c >= 0; c = lengths.nextSetBit(c + 1)) {
+			result.add(c);
+		}
+		return result;
+	}
+
+	public int getNumberOfRows() {
+		return rows;
+	}
+
+	public int getNumberOfColumns() {
+		return columns;
+	}
+
+	/**
+	 * Index of the unordered pair {x, y}, x != y, in the order (0,1), (0,2), ..., (0,m-1), (1,2), ...
+	 */
+	int edgeIndex(int x, int y) {
+		if (x > y) {
+			int tmp = x;
+			x = y;
+			y = tmp;
+		}
+		return x * (2 * m - x - 1) / 2 + (y - x - 1);
+	}
+
+	private static LSVMValidPathLengths load(int rows, int columns) {
+		Path file = diskCacheFile(rows, columns);
+		if (file != null && Files.exists(file)) {
+			try {
+				return read(file, rows, columns);
+			} catch (IOException e) {
+				logger.warn("Could not read cached valid path lengths from " + file + ", recomputing", e);
+			}
+		}
+		LSVMValidPathLengths result = compute(rows, columns);
+		if (file != null) {
+			try {
+				result.write(file);
+			} catch (IOException e) {
+				logger.warn("Could not write valid path lengths to " + file, e);
+			}
+		}
+		return result;
+	}
+
+	static LSVMValidPathLengths compute(int rows, int columns) {
+		int m = rows * columns;
+		int[][] neighbours = new int[m][];
+		for (int x = 0; x < m; x++) {
+			int row = x / columns;
+			int column = x % columns;
+			int[] candidates = new int[4];
+			int count = 0;
+			if (row > 0) {
+				candidates[count++] = x - columns;
+			}
+			if (column > 0) {
+				candidates[count++] = x - 1;
+			}
+			if (column < columns - 1) {
+				candidates[count++] = x + 1;
+			}
+			if (row < rows - 1) {
+				candidates[count++] = x + columns;
+			}
+			neighbours[x] = Arrays.copyOf(candidates, count);
+		}
+
+		BitSet[] validLengths = new BitSet[m * (m - 1) / 2];
+		for (int e = 0; e < validLengths.length; e++) {
+			validLengths[e] = new BitSet(m);
+		}
+		LSVMValidPathLengths result = new LSVMValidPathLengths(rows, columns, validLengths);
+		// Each source only records pairs with larger targets, so the searches write to disjoint BitSets
+		IntStream.range(0, m).parallel().forEach(source -> {
+			// blocked[v] counts the licenses on the current path which are v or adjacent to v
+			int[] blocked = new int[m];
+			block(source, neighbours, blocked, 1);
+			searchInducedPaths(source, source, 0, neighbours, blocked, result);
+		});
+		return result;
+	}
+
+	private static void searchInducedPaths(int source, int last, int length, int[][] neighbours, int[] blocked,
+			LSVMValidPathLengths result) {
+		for (int next : neighbours[last]) {
+			// next may only be adjacent to last among the licenses on the path
+			if (blocked[next] != 1) {
+				continue;
+			}
+			if (next > source) {
+				result.validLengths[result.edgeIndex(source, next)].set(length + 1);
+			}
+			// Neighbours of last are blocked by last only once next is on the path; unblock them for the extension
+			block(next, neighbours, blocked, 1);
+			searchInducedPaths(source, next, length + 1, neighbours, blocked, result);
+			block(next, neighbours, blocked, -1);
+		}
+	}
+
+	private static void block(int license, int[][] neighbours, int[] blocked, int delta) {
+		blocked[license] += delta;
+		for (int neighbour : neighbours[license]) {
+			blocked[neighbour] += delta;
+		}
+	}
+
+	private static Path diskCacheFile(int rows, int columns) {
+		Path directory = diskCacheDirectory;
+		if (directory == null) {
+			return null;
+		}
+		return directory.resolve("lsvm-valid-path-lengths-" + rows + "x" + columns + ".bin");
+	}
+
+	private static LSVMValidPathLengths read(Path file, int rows, int columns) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != rows || in.readInt() != columns) {
+				throw new IOException("Cached valid path lengths are for a different grid shape");
+			}
+			int m = rows * columns;
+			BitSet[] validLengths = new BitSet[m * (m - 1) / 2];
+			for (int e = 0; e < validLengths.length; e++) {
+				long[] words = new long[in.readInt()];
+				for (int w = 0; w < words.length; w++) {
+					words[w] = in.readLong();
+				}
+				validLengths[e] = BitSet.valueOf(words);
+			}
+			return new LSVMValidPathLengths(rows, columns, validLengths);
+		}
+	}
+
+	private void write(Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+		// Write to a temporary file first, such that concurrent readers never see a partial file
+		Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(rows);
+			out.writeInt(columns);
+			for (BitSet lengths : validLengths) {
+				long[] words = lengths.toLongArray();
+				out.writeInt(words.length);
+				for (long word : words) {
+					out.writeLong(word);
+				}
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -6,6 +6,9 @@
 package org.spectrumauctions.sats.opt.model.mrvm;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import edu.harvard.econcs.jopt.solver.mip.*;
 import org.spectrumauctions.sats.core.bidlang.generic.Band;
 import org.spectrumauctions.sats.core.model.Bidder;
@@ -14,8 +17,11 @@ import org.spectrumauctions.sats.core.model.mrvm.MRVMBidder;
 import org.spectrumauctions.sats.core.model.mrvm.MRVMRegionsMap.Region;
 import org.spectrumauctions.sats.core.model.mrvm.MRVMWorld;
 import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+import org.spectrumauctions.sats.opt.imip.CompiledPiecewiseLinearFunction;
 import org.spectrumauctions.sats.opt.imip.PartialMIP;
 import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.OutputDirection;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -33,11 +39,22 @@ public abstract class MRVMBidderPartialMIP extends PartialMIP {
     private static final String qualityPrefix = "aux_quality";
     private static final String regionalSVPrefix = "aux_sv";
 
+    /**
+     * The capacity functions only depend on the band, hence they are shared among all bidders (and partial MIPs)
+     * of a world. The bands are weakly referenced, such that worlds which are no longer used can be collected.
+     */
+    private static final LoadingCache<MRVMBand, ContinuousPiecewiseLinearFunction> capFunctions =
+            CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(MRVMBidderPartialMIP::createCapLinearFunction));
+
 
     private Map<Region, Variable> omegaVariables;
     private Map<Region, Variable> cVariables;
     private Map<Region, Map<Band, Variable>> capVariables;
     private Map<Region, Variable> svVariables;
+    // The piecewise linear partial MIPs are created once, such that variables and constraints refer to the same objects
+    private Set<PartialMIP> svPartialMips;
+    private Set<PartialMIP> capPartialMips;
+    private Encoding piecewiseLinearEncoding = Encoding.AUTOMATIC;
     protected final MRVMWorldPartialMip worldPartialMip;
     private final MRVMBidder bidder;
 
@@ -50,6 +67,16 @@ public abstract class MRVMBidderPartialMIP extends PartialMIP {
         initVariables();
     }
 
+    /**
+     * Sets the encoding of the capacity and sv functions, {@link Encoding#AUTOMATIC} by default.
+     * Must be called before the variables and constraints are appended to a MIP.
+     */
+    public void setPiecewiseLinearEncoding(Encoding encoding) {
+        Preconditions.checkState(svPartialMips == null && capPartialMips == null,
+                "The piecewise linear functions are already encoded");
+        this.piecewiseLinearEncoding = Preconditions.checkNotNull(encoding);
+    }
+
     private void initVariables() {
         this.omegaVariables = createOmegaVariables();
         this.cVariables = createCVariables();
@@ -163,7 +190,15 @@ public abstract class MRVMBidderPartialMIP extends PartialMIP {
         return builder.toString();
     }
 
+    /**
+     * The bidder value is non-decreasing in Omega, and sv is non-decreasing in c, hence the outputs of the sv and
+     * capacity functions are only ever pushed upwards by the (maximized) objective. Concave functions are therefore
+     * encoded without binary variables.
+     */
     Set<PartialMIP> generateSVConstraints() {
+        if (svPartialMips != null) {
+            return svPartialMips;
+        }
         Set<PartialMIP> result = new HashSet<>();
 
         for (Region region : bidder.getWorld().getRegionsMap().getRegions()) {
@@ -176,10 +211,13 @@ public abstract class MRVMBidderPartialMIP extends PartialMIP {
                     sv,
                     svInput,
                     svOutput,
-                    helperVariablesPrefix);
+                    helperVariablesPrefix,
+                    OutputDirection.MAXIMIZED,
+                    piecewiseLinearEncoding);
             result.add(piecewiseLinearPartialMIP);
         }
-        return result;
+        svPartialMips = Collections.unmodifiableSet(result);
+        return svPartialMips;
     }
 
 
@@ -208,6 +246,30 @@ public abstract class MRVMBidderPartialMIP extends PartialMIP {
         return result;
     }
 
+    /**
+     * An upper bound of \Omega_{i,r}, i.e., its value if the bidder gets all lots of all bands in the region:<br>
+     * \beta_{i,r} * p_r * max_{c \leq c^{max}_r} sv_{i,r}(c), where c^{max}_r is the sum over all bands of the maximal
+     * capacity of any quantity of the band.
+     */
+    double maximalOmega(Region region) {
+        double maximalC = 0;
+        for (MRVMBand band : bidder.getWorld().getBands()) {
+            CompiledPiecewiseLinearFunction cap = CompiledPiecewiseLinearFunction.of(capLinearFunction(band));
+            // The capacity is not necessarily monotone in the quantity, as the synergies may decrease
+            double maximalCap = 0;
+            for (int j = 0; j < cap.getNumberOfBreakpoints(); j++) {
+                maximalCap = Math.max(maximalCap, cap.getValue(j));
+            }
+            maximalC += maximalCap;
+        }
+        CompiledPiecewiseLinearFunction sv = CompiledPiecewiseLinearFunction.of(bidder.svFunction(region));
+        double maximalSV = sv.getY(Math.max(sv.getLowestX(), Math.min(maximalC, sv.getHighestX())));
+        for (int j = 0; j < sv.getNumberOfBreakpoints() && sv.getBreakpoint(j) <= maximalC; j++) {
+            maximalSV = Math.max(maximalSV, sv.getValue(j));
+        }
+        return bidder.getBeta(region).doubleValue() * region.getPopulation() / scaling * maximalSV;
+    }
+
     /**
      * Generates the constraints of the form <br>
      * c_{i,r} = sum_{b \in B} cap_{i,r,b}
@@ -231,6 +293,9 @@ public abstract class MRVMBidderPartialMIP extends PartialMIP {
 
 
     Set<PartialMIP> generateCapConstraints() {
+        if (capPartialMips != null) {
+            return capPartialMips;
+        }
         Set<PartialMIP> result = new HashSet<>();
         for (MRVMBand band : bidder.getWorld().getBands()) {
             ContinuousPiecewiseLinearFunction func = capLinearFunction(band);
@@ -245,29 +310,35 @@ public abstract class MRVMBidderPartialMIP extends PartialMIP {
                         new PiecewiseLinearPartialMIP(func,
                                 input,
                                 output,
-                                auxiliaryVariableName);
+                                auxiliaryVariableName,
+                                OutputDirection.MAXIMIZED,
+                                piecewiseLinearEncoding);
                 result.add(partialMip);
             }
         }
-        return result;
+        capPartialMips = Collections.unmodifiableSet(result);
+        return capPartialMips;
     }
 
     /**
      * Returns a continuous piecwise linear function which represents the capacity of a band for all possible input quantities.
+     * The function is shared among all bidders.
      * @param band
      * @return
      */
     ContinuousPiecewiseLinearFunction capLinearFunction(MRVMBand band) {
+        return capFunctions.getUnchecked(band);
+    }
+
+    private static ContinuousPiecewiseLinearFunction createCapLinearFunction(MRVMBand band) {
         //Must ensure all BigDecimals have the same scale, as they are used as keys in a Map
         Map<BigDecimal, BigDecimal> breakpoints = new HashMap<>();
-        breakpoints.put(BigDecimal.ZERO, capAt(band, 0)); //
-        BigDecimal lastSynergy = band.getSynergy(0);
+        breakpoints.put(BigDecimal.ZERO, MRVMWorld.capOfBand(band, 0));
         for (int quantity = 1; quantity <= band.getNumberOfLots(); quantity++) {
             //Quick and dirty approach - Adding all quantities
-            breakpoints.put(BigDecimal.valueOf(quantity), capAt(band,quantity));
+            breakpoints.put(BigDecimal.valueOf(quantity), MRVMWorld.capOfBand(band, quantity));
         }
-        ContinuousPiecewiseLinearFunction result = new ContinuousPiecewiseLinearFunction(breakpoints);
-        return result;
+        return new ContinuousPiecewiseLinearFunction(breakpoints);
     }
 
     BigDecimal capAt(MRVMBand band, int quantity){
@@ -0,0 +1,380 @@
+package org.spectrumauctions.sats.opt.model.mrvm;
+
+import com.google.common.base.Preconditions;
+import edu.harvard.econcs.jopt.solver.IMIPResult;
+import edu.harvard.econcs.jopt.solver.SolveParam;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
+import edu.harvard.econcs.jopt.solver.mip.LinearTerm;
+import edu.harvard.econcs.jopt.solver.mip.MIP;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.spectrumauctions.sats.core.bidlang.generic.GenericValue;
+import org.spectrumauctions.sats.core.model.mrvm.*;
+import org.spectrumauctions.sats.core.model.mrvm.MRVMRegionsMap.Region;
+import org.spectrumauctions.sats.opt.imip.BoundPropagation;
+import org.spectrumauctions.sats.opt.model.EfficientAllocator;
+import org.spectrumauctions.sats.opt.model.GenericAllocation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Efficient allocator for the Multi-Region Value Model based on Lagrangian relaxation.<br>
+ * In {@link MRVM_MIP}, the bidders are only coupled by the number of lots constraints
+ * sum_i X_{i,r,b} <= n_b of every region r and band b. These constraints are relaxed with prices
+ * lambda_{r,b} >= 0, such that the problem decomposes into one MIP per bidder,<br>
+ * max v_i(X_i) - sum_{r,b} lambda_{r,b} X_{i,r,b},<br>
+ * which are solved in parallel. For any prices, the sum of the optimal bidder objectives plus
+ * sum_{r,b} lambda_{r,b} n_b is an upper bound of the efficient value. As jopt does not report the best bound of an
+ * unfinished MIP, the bidder MIPs are solved without optimality gap, such that their objective values are optimal.<br>
+ * The prices are updated by subgradient steps with Polyak step sizes. Each update only needs the demanded
+ * quantities, whereas a bundle method would solve an additional stabilized master problem in every iteration over
+ * all cuts collected so far; the bidder MIPs dominate the running time either way. In every iteration, the demanded
+ * quantities are repaired to a feasible allocation by greedily removing over-demanded lots from the bidders losing
+ * the least value, and assigning remaining lots to the bidders gaining the most. The best repaired allocation is
+ * returned, and {@link #getRelativeDualityGap()} certifies its quality (up to the numerical tolerances of the
+ * solver).<br>
+ * Like in {@link MRVM_MIP}, the total value of the returned {@link MRVMMipResult} is in scaled units (i.e., divided
+ * by {@link Scalor#scalingFactor(Collection)}), while the values of the individual bidders are unscaled. The bounds
+ * returned by {@link #getLowerBound()} and {@link #getUpperBound()} are unscaled. The returned result has no jopt
+ * result, as it is not the solution of a single MIP.
+ */
+public class MRVMLagrangianAllocator implements EfficientAllocator<GenericAllocation<MRVMGenericDefinition>> {
+
+    private static final Logger logger = LogManager.getLogger(MRVMLagrangianAllocator.class);
+
+    private static final int STEP_SIZE_PATIENCE = 5;
+
+    private final MRVMWorld world;
+    private final List<MRVMBidder> bidders;
+    private final List<Region> regions;
+    private final List<MRVMBand> bands;
+    private final double scalingFactor;
+
+    private int maxIterations = 100;
+    private double targetRelativeGap = 0.001;
+
+    // Prices lambda_{r,b} in scaled units, indexed by region and band
+    private double[][] prices;
+    private double upperBound = Double.POSITIVE_INFINITY;
+    private double lowerBound = Double.NEGATIVE_INFINITY;
+    private int iterations = 0;
+
+    public MRVMLagrangianAllocator(Collection<MRVMBidder> bidders) {
+        Preconditions.checkNotNull(bidders);
+        Preconditions.checkArgument(bidders.size() > 0);
+        this.bidders = new ArrayList<>(bidders);
+        this.world = this.bidders.get(0).getWorld();
+        this.regions = new ArrayList<>(world.getRegionsMap().getRegions());
+        this.bands = new ArrayList<>(world.getBands());
+        // All bidders share the scaling factor, such that the prices are in the same unit for all bidders
+        this.scalingFactor = Scalor.scalingFactor(bidders);
+    }
+
+    /**
+     * @param maxIterations the maximal number of price updates, 100 by default
+     */
+    public void setMaxIterations(int maxIterations) {
+        Preconditions.checkArgument(maxIterations > 0);
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @param targetRelativeGap the relative duality gap at which the price updates are stopped, 0.001 by default
+     */
+    public void setTargetRelativeGap(double targetRelativeGap) {
+        Preconditions.checkArgument(targetRelativeGap >= 0);
+        this.targetRelativeGap = targetRelativeGap;
+    }
+
+    @Override
+    public MRVMMipResult calculateAllocation() {
+        List<Subproblem> subproblems = bidders.parallelStream().map(Subproblem::new).collect(Collectors.toList());
+        prices = new double[regions.size()][bands.size()];
+        upperBound = Double.POSITIVE_INFINITY;
+        lowerBound = Double.NEGATIVE_INFINITY;
+        int[][][] bestAllocation = null;
+        double theta = 2;
+        int iterationsWithoutImprovement = 0;
+        iterations = 0;
+        while (iterations < maxIterations) {
+            iterations++;
+            final double[][] currentPrices = prices;
+            List<int[][]> demand = subproblems.parallelStream()
+                    .map(subproblem -> subproblem.solve(currentPrices))
+                    .collect(Collectors.toList());
+
+            double dualValue = 0;
+            for (Subproblem subproblem : subproblems) {
+                dualValue += subproblem.objectiveValue;
+            }
+            double[][] subgradient = new double[regions.size()][bands.size()];
+            double norm = 0;
+            for (int r = 0; r < regions.size(); r++) {
+                for (int b = 0; b < bands.size(); b++) {
+                    int lots = bands.get(b).getNumberOfLots();
+                    dualValue += prices[r][b] * lots;
+                    subgradient[r][b] = lots;
+                    for (int[][] quantities : demand) {
+                        subgradient[r][b] -= quantities[r][b];
+                    }
+                    if (subgradient[r][b] < 0 || prices[r][b] > 0) {
+                        norm += subgradient[r][b] * subgradient[r][b];
+                    }
+                }
+            }
+            double unscaledDualValue = dualValue * scalingFactor;
+            if (unscaledDualValue < upperBound) {
+                upperBound = unscaledDualValue;
+                iterationsWithoutImprovement = 0;
+            } else if (++iterationsWithoutImprovement >= STEP_SIZE_PATIENCE) {
+                theta /= 2;
+                iterationsWithoutImprovement = 0;
+            }
+
+            int[][][] repaired = repair(demand);
+            double repairedValue = totalValue(repaired);
+            if (repairedValue > lowerBound) {
+                lowerBound = repairedValue;
+                bestAllocation = repaired;
+            }
+            logger.info("Lagrangian iteration {}: upper bound {}, lower bound {}", iterations, upperBound, lowerBound);
+            if (getRelativeDualityGap() <= targetRelativeGap || norm == 0) {
+                break;
+            }
+
+            double stepSize = theta * (dualValue - lowerBound / scalingFactor) / norm;
+            double[][] nextPrices = new double[regions.size()][bands.size()];
+            for (int r = 0; r < regions.size(); r++) {
+                for (int b = 0; b < bands.size(); b++) {
+                    nextPrices[r][b] = Math.max(0, prices[r][b] - stepSize * subgradient[r][b]);
+                }
+            }
+            prices = nextPrices;
+        }
+        return buildResult(bestAllocation);
+    }
+
+    /**
+     * Removes over-demanded lots from the bidders losing the least value, and assigns lots which are not demanded
+     * to the bidders gaining the most value.
+     * @param demand the quantities demanded by the bidders, indexed by bidder, region and band
+     * @return a feasible allocation
+     */
+    private int[][][] repair(List<int[][]> demand) {
+        int[][][] allocation = new int[bidders.size()][][];
+        double[] values = new double[bidders.size()];
+        for (int i = 0; i < bidders.size(); i++) {
+            allocation[i] = new int[regions.size()][];
+            for (int r = 0; r < regions.size(); r++) {
+                allocation[i][r] = demand.get(i)[r].clone();
+            }
+            values[i] = value(i, allocation[i]);
+        }
+        for (int r = 0; r < regions.size(); r++) {
+            for (int b = 0; b < bands.size(); b++) {
+                int lots = bands.get(b).getNumberOfLots();
+                int allocated = 0;
+                for (int[][] quantities : allocation) {
+                    allocated += quantities[r][b];
+                }
+                while (allocated > lots) {
+                    int cheapest = -1;
+                    double cheapestValue = 0;
+                    double smallestLoss = Double.POSITIVE_INFINITY;
+                    for (int i = 0; i < bidders.size(); i++) {
+                        if (allocation[i][r][b] == 0) {
+                            continue;
+                        }
+                        allocation[i][r][b]--;
+                        double reducedValue = value(i, allocation[i]);
+                        allocation[i][r][b]++;
+                        if (values[i] - reducedValue < smallestLoss) {
+                            smallestLoss = values[i] - reducedValue;
+                            cheapest = i;
+                            cheapestValue = reducedValue;
+                        }
+                    }
+                    allocation[cheapest][r][b]--;
+                    values[cheapest] = cheapestValue;
+                    allocated--;
+                }
+                while (allocated < lots) {
+                    int best = -1;
+                    double bestValue = 0;
+                    double largestGain = 0;
+                    for (int i = 0; i < bidders.size(); i++) {
+                        allocation[i][r][b]++;
+                        double increasedValue = value(i, allocation[i]);
+                        allocation[i][r][b]--;
+                        if (increasedValue - values[i] > largestGain) {
+                            largestGain = increasedValue - values[i];
+                            best = i;
+                            bestValue = increasedValue;
+                        }
+                    }
+                    if (best < 0) {
+                        break;
+                    }
+                    allocation[best][r][b]++;
+                    values[best] = bestValue;
+                    allocated++;
+                }
+            }
+        }
+        return allocation;
+    }
+
+    private Map<MRVMGenericDefinition, Integer> quantities(int[][] allocation) {
+        Map<MRVMGenericDefinition, Integer> quantities = new HashMap<>();
+        for (int r = 0; r < regions.size(); r++) {
+            for (int b = 0; b < bands.size(); b++) {
+                if (allocation[r][b] > 0) {
+                    quantities.put(new MRVMGenericDefinition(bands.get(b), regions.get(r)), allocation[r][b]);
+                }
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * @return the unscaled value of bidder i for the allocated quantities
+     */
+    private double value(int i, int[][] allocation) {
+        return bidders.get(i).calculateValue(quantities(allocation)).doubleValue();
+    }
+
+    private double totalValue(int[][][] allocation) {
+        double total = 0;
+        for (int i = 0; i < bidders.size(); i++) {
+            total += value(i, allocation[i]);
+        }
+        return total;
+    }
+
+    private MRVMMipResult buildResult(int[][][] allocation) {
+        // Scaled total value, as reported by MRVM_MIP
+        MRVMMipResult.Builder resultBuilder = new MRVMMipResult.Builder(lowerBound / scalingFactor, world, null);
+        for (int i = 0; i < bidders.size(); i++) {
+            BigDecimal value = BigDecimal.valueOf(value(i, allocation[i]));
+            GenericValue.Builder<MRVMGenericDefinition> valueBuilder = new GenericValue.Builder<>(value);
+            for (int r = 0; r < regions.size(); r++) {
+                for (int b = 0; b < bands.size(); b++) {
+                    valueBuilder.putQuantity(new MRVMGenericDefinition(bands.get(b), regions.get(r)), allocation[i][r][b]);
+                }
+            }
+            resultBuilder.putGenericValue(bidders.get(i), valueBuilder.build());
+        }
+        return resultBuilder.build();
+    }
+
+    /**
+     * @return the lowest (unscaled) upper bound of the efficient value found, i.e., the value of the Lagrangian dual
+     */
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * @return the (unscaled) value of the returned allocation, i.e., the sum of the values of the bidders
+     */
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * @return (upper bound - lower bound) / upper bound
+     */
+    public double getRelativeDualityGap() {
+        if (upperBound <= 0) {
+            return 0;
+        }
+        return (upperBound - lowerBound) / upperBound;
+    }
+
+    /**
+     * @return the number of times the bidder MIPs were solved in {@link #calculateAllocation()}
+     */
+    public int getNumberOfIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the (unscaled) price of a lot of the band in the region after the last iteration
+     */
+    public double getPrice(Region region, MRVMBand band) {
+        Preconditions.checkState(prices != null, "The allocation is not calculated yet");
+        return prices[regions.indexOf(region)][bands.indexOf(band)] * scalingFactor;
+    }
+
+    /**
+     * The MIP of a single bidder, with the world constraints restricted to the bidder.
+     * The price terms of the objective are replaced before every solve.
+     */
+    private final class Subproblem {
+
+        private final MRVMWorldPartialMip worldPartialMip;
+        private final MIP mip = new MIP();
+        private final SolverClient solver = new SolverClient();
+        private final MRVMBidder bidder;
+        private List<LinearTerm> priceTerms = Collections.emptyList();
+        private double objectiveValue;
+
+        private Subproblem(MRVMBidder bidder) {
+            this.bidder = bidder;
+            double biggestPossibleValue = Scalor.fullBundleValue(bidder).doubleValue() / scalingFactor;
+            this.worldPartialMip = new MRVMWorldPartialMip(Collections.singleton(bidder), biggestPossibleValue);
+            // The objective value is only an upper bound of the bidder problem if it is solved to optimality
+            mip.setSolveParam(SolveParam.RELATIVE_OBJ_GAP, 0.0);
+            mip.setSolveParam(SolveParam.ABSOLUTE_OBJ_GAP, 0.0);
+            worldPartialMip.appendToMip(mip);
+            MRVMBidderPartialMIP bidderPartialMip;
+            if (bidder instanceof MRVMNationalBidder) {
+                bidderPartialMip = new MRVMNationalBidderPartialMip((MRVMNationalBidder) bidder, scalingFactor, worldPartialMip);
+            } else if (bidder instanceof MRVMLocalBidder) {
+                bidderPartialMip = new MRVMLocalBidderPartialMip((MRVMLocalBidder) bidder, scalingFactor, worldPartialMip);
+            } else {
+                bidderPartialMip = new MRVMRegionalBidderPartialMip((MRVMRegionalBidder) bidder, scalingFactor, worldPartialMip);
+            }
+            bidderPartialMip.appendToMip(mip);
+            BoundPropagation.tighten(mip);
+        }
+
+        /**
+         * Solves max v_i(X_i) - sum_{r,b} lambda_{r,b} X_{i,r,b}
+         * @return the demanded quantities, indexed by region and band
+         */
+        private int[][] solve(double[][] prices) {
+            for (LinearTerm term : priceTerms) {
+                mip.removeObjectiveTerm(term);
+            }
+            priceTerms = new ArrayList<>();
+            for (int r = 0; r < regions.size(); r++) {
+                for (int b = 0; b < bands.size(); b++) {
+                    if (prices[r][b] > 0) {
+                        LinearTerm term = new LinearTerm(-prices[r][b],
+                                worldPartialMip.getXVariable(bidder, regions.get(r), bands.get(b)));
+                        mip.addObjectiveTerm(term);
+                        priceTerms.add(term);
+                    }
+                }
+            }
+            IMIPResult result = solver.solve(mip);
+            objectiveValue = result.getObjectiveValue();
+            int[][] quantities = new int[regions.size()][bands.size()];
+            for (int r = 0; r < regions.size(); r++) {
+                for (int b = 0; b < bands.size(); b++) {
+                    double quantity = result.getValue(worldPartialMip.getXVariable(bidder, regions.get(r), bands.get(b)));
+                    quantities[r][b] = (int) Math.round(quantity);
+                }
+            }
+            return quantities;
+        }
+    }
+}
@@ -38,6 +38,9 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
     private Variable wIVariable;
     private Map<Region, Variable> wIRVariables;
 
+    // maximalPsi[k]: the highest possible value of \Psi_{i,k}, i.e., the sum of the |R| - k highest maximal \Omega_{i,r}
+    private double[] maximalPsi;
+
     /**
      * @param bidder
      * @param worldMip
@@ -45,6 +48,7 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
     public MRVMNationalBidderPartialMip(MRVMNationalBidder bidder, double scalingFactor, MRVMWorldPartialMip worldMip) {
         super(bidder, scalingFactor, worldMip);
         this.bidder = bidder;
+        maximalPsi = calculateMaximalPsi();
         psiVariables = createPsiVariables();
         wHatIKVariables = createwHatIKVariables();
         wIVariable = createWIVariable();
@@ -92,6 +96,25 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
         return builder.toString();
     }
 
+    /**
+     * A bidder missing k regions covers at most |R| - k regions, hence \Psi_{i,k} is at most the sum of
+     * the |R| - k highest maximal regional \Omega_{i,r}. For k = k_{max}, at least k_{max} regions are missing.
+     */
+    private double[] calculateMaximalPsi() {
+        double[] maximalOmegas = bidder.getWorld().getRegionsMap().getRegions().stream()
+                .mapToDouble(this::maximalOmega)
+                .sorted()
+                .toArray();
+        double[] result = new double[bidder.getKMax() + 1];
+        for (int k = 0; k <= bidder.getKMax(); k++) {
+            // Skip the k lowest maximal values
+            for (int r = k; r < maximalOmegas.length; r++) {
+                result[k] += maximalOmegas[r];
+            }
+        }
+        return result;
+    }
+
     /**
      * @return
      */
@@ -99,7 +122,7 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
         Map<Integer, Variable> result = new HashMap<>();
         for (int k = 0; k <= bidder.getKMax(); k++) {
             String name = PSI_VARIABLE_PREFIX.concat(createIndex(bidder, k));
-            result.put(k, new Variable(name, VarType.DOUBLE, 0, MIP.MAX_VALUE));
+            result.put(k, new Variable(name, VarType.DOUBLE, 0, Math.min(maximalPsi[k], MIP.MAX_VALUE)));
         }
         return result;
     }
@@ -199,13 +222,14 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
 
     /**
      * Encodes the following constraints : <br>
-     *  W_i + M \cdot \hat{W}_{i,k} \leq M + |R| - k      \forall  k\in \{0,...,k_{max}-1\}
+     *  W_i + M_k \cdot \hat{W}_{i,k} \leq M_k + |R| - k      \forall  k\in \{0,...,k_{max}-1\}
      * <br>and<br>
-     *  W_i -M \dot \hat{W}_{i,k} \geq -M + |R| - k     \forall  k\in \{0,...,k_{max}-1\}
+     *  W_i - M'_k \dot \hat{W}_{i,k} \geq -M'_k + |R| - k     \forall  k\in \{0,...,k_{max}-1\}
      * <br>and<br>
-     * W_i + M \cdot \hat{W}_{i,k_{max}} \leq M + |R| - k_{max}
+     * W_i + M_{k_{max}} \cdot \hat{W}_{i,k_{max}} \leq M_{k_{max}} + |R| - k_{max}
      * <br>and<br>
      * (|R| -k_{max} + 1) \hat{W}_{i,k_{max}} + W_i \geq \cdot  |R| - k_max + 1;
+     * <br>As 0 \leq W_i \leq |R|, the constraints with \hat{W}_{i,k} = 0 are redundant for M_k = k and M'_k = |R| - k.
      * @return
      */
     List<Constraint> constrainWHat() {
@@ -213,24 +237,25 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
         final int numberOfRegions = bidder.getWorld().getRegionsMap().getNumberOfRegions();
         int kMax = bidder.getKMax();
         for (int k = 0; k < kMax; k++) {
-            double bigM = (double) numberOfRegions; //TODO Remove
+            double bigMOne = k;
+            double bigMTwo = numberOfRegions - k;
             // Constraint W_i + M \cdot \hat{W}_{i,k} \leq M + |R| - k
-            Constraint constraintOne = new Constraint(CompareType.LEQ, bigM + numberOfRegions - k);
+            Constraint constraintOne = new Constraint(CompareType.LEQ, bigMOne + numberOfRegions - k);
             // Constraint W_i -M \dot \hat{W}_{i,k} \geq -M + |R| - k
-            Constraint constraintTwo = new Constraint(CompareType.GEQ, ((-1) * bigM) + numberOfRegions - k);
+            Constraint constraintTwo = new Constraint(CompareType.GEQ, ((-1) * bigMTwo) + numberOfRegions - k);
             Variable WI = getWIVariable();
             constraintOne.addTerm(1, WI);
             constraintTwo.addTerm(1, WI);
             Variable wHat = getWHatIKVariable(k);
-            constraintOne.addTerm(bigM, wHat);
-            constraintTwo.addTerm((-1) * bigM, wHat);
+            constraintOne.addTerm(bigMOne, wHat);
+            constraintTwo.addTerm((-1) * bigMTwo, wHat);
             constraints.add(constraintOne);
             constraints.add(constraintTwo);
         }
         //
         // kMax-Equations
         //
-        double bigM = (double) numberOfRegions; // TODO Remove
+        double bigM = kMax;
         // Constraint W_i + M \cdot \hat{W}_{i,k_{max}} \leq M + |R| - k_{max}
         Constraint constraintOne = new Constraint(CompareType.LEQ, bigM + numberOfRegions - kMax);
         Variable WI = getWIVariable();
@@ -247,22 +272,31 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
         return constraints;
     }
 
+    /**
+     * Encodes \Psi_{i,k} = \hat{W}_{i,k} \cdot \sum_{r \in R} \Omega_{i,r} with the constraints<br>
+     * \Psi_{i,k} \leq \sum_{r \in R} \Omega_{i,r}<br>
+     * \Psi_{i,k} \geq \sum_{r \in R} \Omega_{i,r} - M (1 - \hat{W}_{i,k})<br>
+     * \Psi_{i,k} \leq M_k \hat{W}_{i,k}<br>
+     * The big-M constants are specific to the bidder: M is the sum of the maximal \Omega_{i,r} of all regions,
+     * and M_k the highest possible value of \Psi_{i,k}, see {@link #calculateMaximalPsi()}.
+     * The first constraint needs no big-M, as \Psi_{i,k} = 0 for \hat{W}_{i,k} = 0 by the third constraint.
+     * @return
+     */
     List<Constraint> constrainPsi() {
         List<Constraint> result = new ArrayList<>();
-        // Big M is the highest possible valuation a bidder can have. 
-        final double bigM = worldPartialMip.getBiggestPossibleValue();
-        // Constraint One: 
-        // -M\hat{W}_{i,k} - \Psi_{i,k} + \sum{r \in R} \Omega_{i,r} \geq -M
+        // The highest possible value of the sum of the Omegas of this bidder
+        final double bigM = maximalPsi[0];
+        // Constraint One:
+        // - \Psi_{i,k} + \sum{r \in R} \Omega_{i,r} \geq 0
         for (int k = 0; k <= bidder.getKMax(); k++) {
-            Constraint constraint = new Constraint(CompareType.GEQ, (-1) * bigM);
-            constraint.addTerm((-1) * bigM, getWHatIKVariable(k));
+            Constraint constraint = new Constraint(CompareType.GEQ, 0);
             constraint.addTerm(-1, getPsi(k));
             for (Region region : bidder.getWorld().getRegionsMap().getRegions()) {
                 constraint.addTerm(1, getOmegaVariable(region));
             }
             result.add(constraint);
         }
-        // Constraint Two: 
+        // Constraint Two:
         // M\hat{W}_{i,k} - \Psi_{i,k} + \sum{r \in R} \Omega_{i,r} \leq M
         for (int k = 0; k <= bidder.getKMax(); k++) {
             Constraint constraint = new Constraint(CompareType.LEQ, bigM);
@@ -274,11 +308,11 @@ public class MRVMNationalBidderPartialMip extends MRVMBidderPartialMIP {
             result.add(constraint);
         }
         // Constraint Three
-        // Psi_{i,k} - M\hat{W}_{i,k} \leq 0
+        // Psi_{i,k} - M_k\hat{W}_{i,k} \leq 0
         for (int k = 0; k <= bidder.getKMax(); k++) {
             Constraint constraint = new Constraint(CompareType.LEQ, 0);
             constraint.addTerm(1, getPsi(k));
-            constraint.addTerm((-1) * bigM, getWHatIKVariable(k));
+            constraint.addTerm((-1) * maximalPsi[k], getWHatIKVariable(k));
             result.add(constraint);
         }
         return result;
@@ -19,6 +19,8 @@ import org.spectrumauctions.sats.core.model.mrvm.*;
 import org.spectrumauctions.sats.core.model.mrvm.MRVMRegionsMap.Region;
 import org.spectrumauctions.sats.opt.model.EfficientAllocator;
 import org.spectrumauctions.sats.opt.model.GenericAllocation;
+import org.spectrumauctions.sats.opt.imip.BoundPropagation;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
 import org.spectrumauctions.sats.opt.model.ModelMIP;
 
 import java.math.BigDecimal;
@@ -47,6 +49,13 @@ public class MRVM_MIP extends ModelMIP implements EfficientAllocator<GenericAllo
     private MRVMWorld world;
 
     public MRVM_MIP(Collection<MRVMBidder> bidders) {
+        this(bidders, Encoding.AUTOMATIC);
+    }
+
+    /**
+     * @param piecewiseLinearEncoding the encoding of the capacity and sv functions of all bidders
+     */
+    public MRVM_MIP(Collection<MRVMBidder> bidders, Encoding piecewiseLinearEncoding) {
         Preconditions.checkNotNull(bidders);
         Preconditions.checkArgument(bidders.size() > 0);
         world = bidders.iterator().next().getWorld();
@@ -70,9 +79,12 @@ public class MRVM_MIP extends ModelMIP implements EfficientAllocator<GenericAllo
                 MRVMRegionalBidder globalBidder = (MRVMRegionalBidder) bidder;
                 bidderPartialMIP = new MRVMRegionalBidderPartialMip(globalBidder, scalingFactor, worldPartialMip);
             }
+            bidderPartialMIP.setPiecewiseLinearEncoding(piecewiseLinearEncoding);
             bidderPartialMIP.appendToMip(getMip());
             bidderPartialMips.put(bidder, bidderPartialMIP);
         }
+        // Derive finite bounds for the auxiliary variables from the bounds of the quantities
+        BoundPropagation.tighten(getMip());
     }
 
 
@@ -1,5 +1,7 @@
 package org.spectrumauctions.sats.opt.model.mrvm;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import edu.harvard.econcs.jopt.solver.mip.MIP;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -7,9 +9,11 @@ import org.spectrumauctions.sats.core.model.Bundle;
 import org.spectrumauctions.sats.core.model.mrvm.MRVMBidder;
 import org.spectrumauctions.sats.core.model.mrvm.MRVMLicense;
 import org.spectrumauctions.sats.core.model.mrvm.MRVMRegionsMap;
+import org.spectrumauctions.sats.core.model.mrvm.MRVMWorld;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collection;
 import java.util.Comparator;
 
@@ -22,6 +26,14 @@ public class Scalor {
 
     public static BigDecimal highestValidVal = BigDecimal.valueOf(MIP.MAX_VALUE - 1000000);
 
+    /**
+     * The values of the full bundle, memoised per bidder, as they are needed for every MIP built for a population.
+     * The bidders are weakly referenced. The world is stored along with the value, such that the value is
+     * recalculated if the bidder refers to another world.
+     */
+    private static final Cache<MRVMBidder, SimpleImmutableEntry<MRVMWorld, BigDecimal>> fullBundleValues =
+            CacheBuilder.newBuilder().weakKeys().build();
+
 
     public static double scalingFactor(Collection<MRVMBidder> bidders){
         double proposedSVScaling = calculateSVScalingFactor(bidders);
@@ -67,13 +79,21 @@ public class Scalor {
      * @return
      */
     public static BigDecimal biggestUnscaledPossibleValue(Collection<MRVMBidder> bidders) {
-        BigDecimal biggestValue = BigDecimal.ZERO;
-        for (MRVMBidder bidder : bidders) {
-            BigDecimal val = bidder.calculateValue(new Bundle<MRVMLicense>(bidder.getWorld().getLicenses()));
-            if (val.compareTo(biggestValue) > 0) {
-                biggestValue = val;
-            }
+        return bidders.parallelStream()
+                .map(Scalor::fullBundleValue)
+                .reduce(BigDecimal.ZERO, BigDecimal::max);
+    }
+
+    /**
+     * @return the value of the bidder for all licenses of its world, calculated once per bidder and world
+     */
+    static BigDecimal fullBundleValue(MRVMBidder bidder) {
+        SimpleImmutableEntry<MRVMWorld, BigDecimal> cached = fullBundleValues.getIfPresent(bidder);
+        if (cached == null || cached.getKey() != bidder.getWorld()) {
+            BigDecimal value = bidder.calculateValue(new Bundle<MRVMLicense>(bidder.getWorld().getLicenses()));
+            cached = new SimpleImmutableEntry<>(bidder.getWorld(), value);
+            fullBundleValues.put(bidder, cached);
         }
-        return biggestValue;
+        return cached.getValue();
     }
 }
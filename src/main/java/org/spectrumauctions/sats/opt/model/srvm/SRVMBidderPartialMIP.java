@@ -11,14 +11,20 @@ import org.spectrumauctions.sats.core.bidlang.generic.Band;
 import org.spectrumauctions.sats.core.model.Bidder;
 import org.spectrumauctions.sats.core.model.srvm.SRVMBidder;
 import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+import org.spectrumauctions.sats.opt.imip.CompiledPiecewiseLinearFunction;
+import org.spectrumauctions.sats.opt.imip.MultiPiecewiseLinearPartialMIP;
 import org.spectrumauctions.sats.opt.imip.PartialMIP;
-import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.OutputDirection;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Michael Weiss
@@ -29,12 +35,21 @@ public class SRVMBidderPartialMIP extends PartialMIP {
     private static final String wVariablePrefix = "W";
     private static final String valueVariablePrefix = "v";
 
+    /**
+     * alpha, beta and gamma only depend on the number of licenses of a band and the synergy threshold of a bidder,
+     * hence they are shared among all bidders with the same threshold.
+     */
+    private static final Map<String, ContinuousPiecewiseLinearFunction> functionCache = new ConcurrentHashMap<>();
+
     private Map<Band, Variable> zVariables;
     private Variable wVariable;
     private Map<Band, Variable> valueVariables;
     private Map<Band, Variable> alphaVariables;
     private Map<Band, Variable> betaVariables;
     private Map<Band, Variable> gammaVariables;
+    // The piecewise linear partial MIPs are created once, such that variables and constraints refer to the same objects
+    private Set<PartialMIP> piecewiseLinearPartialMips;
+    private Encoding piecewiseLinearEncoding = Encoding.AUTOMATIC;
     protected final SRVMWorldPartialMip worldPartialMip;
     private final SRVMBidder bidder;
 
@@ -44,6 +59,16 @@ public class SRVMBidderPartialMIP extends PartialMIP {
         initVariables();
     }
 
+    /**
+     * Sets the encoding of the alpha, beta and gamma functions, {@link Encoding#AUTOMATIC} by default.
+     * Must be called before the variables and constraints are appended to a MIP.
+     */
+    public void setPiecewiseLinearEncoding(Encoding encoding) {
+        Preconditions.checkState(piecewiseLinearPartialMips == null,
+                "The piecewise linear functions are already encoded");
+        this.piecewiseLinearEncoding = Preconditions.checkNotNull(encoding);
+    }
+
     private void initVariables() {
         this.zVariables = createZVariables();
         this.wVariable = new Variable(wVariablePrefix + "_" + bidder.getId(), VarType.BOOLEAN, 0, 1);
@@ -77,7 +102,7 @@ public class SRVMBidderPartialMIP extends PartialMIP {
         Map<Band, Variable> result = new HashMap<>();
         for (Band band : bidder.getWorld().getBands()) {
             String varName = valueVariablePrefix.concat(createIndex(bidder, band));
-            Variable var = new Variable(varName, VarType.DOUBLE, 0, MIP.MAX_VALUE);
+            Variable var = new Variable(varName, VarType.DOUBLE, 0, Math.min(maximalValue(band), MIP.MAX_VALUE));
             result.put(band, var);
         }
         return result;
@@ -173,28 +198,50 @@ public class SRVMBidderPartialMIP extends PartialMIP {
     }
 
     /**
+     * An upper bound of the value v_{i,b} of a band, i.e., the highest value of<br>
+     * baseValue * (alpha(x) + intrabandSynergyFactor * beta(x) + gamma(x))<br>
+     * for a quantity x \in \{0, ..., n_b\}. As all breakpoints of alpha, beta and gamma are integers,
+     * this is also the highest value for a fractional x.
+     */
+    double maximalValue(Band band) {
+        CompiledPiecewiseLinearFunction alpha = CompiledPiecewiseLinearFunction.of(alpha(band));
+        CompiledPiecewiseLinearFunction beta = CompiledPiecewiseLinearFunction.of(beta(band));
+        CompiledPiecewiseLinearFunction gamma = CompiledPiecewiseLinearFunction.of(gamma(band));
+        double intrabandSynergyFactor = getIntrabandSynergyFactor(bidder, band);
+        double maximum = 0;
+        for (int x = 0; x <= band.getNumberOfLicenses(); x++) {
+            double factor = alpha.getY(x) + intrabandSynergyFactor * beta.getY(x) + gamma.getY(x);
+            maximum = Math.max(maximum, factor);
+        }
+        return getBaseValue(bidder, band) * maximum;
+    }
+
+    /**
+     * Encodes VM_{i,b} = W_i * v_{i,b} and VO_{i,b} = v_{i,b} - VM_{i,b} (C.10 - C.13).
+     * The big-M is specific to the bidder and band, see {@link #maximalValue(Band)}. C.10 needs no big-M,
+     * as VM_{i,b} = 0 for W_i = 0 by C.12.
      * @return
      */
     Set<Constraint> generateInterBandSynergyConstraints() {
         Set<Constraint> result = new HashSet<>();
         for (Band band : bidder.getWorld().getBands()) {
             Variable vm = worldPartialMip.getVmVariable(bidder, band);
-            // Add C.10
-            Constraint c1 = new Constraint(CompareType.GEQ, -MIP.MAX_VALUE);
+            double bigM = maximalValue(band);
+            // Add C.10: v_{i,b} - VM_{i,b} >= 0
+            Constraint c1 = new Constraint(CompareType.GEQ, 0);
             c1.addTerm(-1, vm);
             c1.addTerm(1, getValueVariable(band));
-            c1.addTerm(-MIP.MAX_VALUE, getwVariable());
             result.add(c1);
-            // Add C.11
-            Constraint c2 = new Constraint(CompareType.LEQ, MIP.MAX_VALUE);
+            // Add C.11: v_{i,b} - VM_{i,b} + M * W_i <= M
+            Constraint c2 = new Constraint(CompareType.LEQ, bigM);
             c2.addTerm(-1, vm);
             c2.addTerm(1, getValueVariable(band));
-            c2.addTerm(MIP.MAX_VALUE, getwVariable());
+            c2.addTerm(bigM, getwVariable());
             result.add(c2);
-            // Add C.12
+            // Add C.12: M * W_i - VM_{i,b} >= 0
             Constraint c3 = new Constraint(CompareType.GEQ, 0);
             c3.addTerm(-1, vm);
-            c3.addTerm(MIP.MAX_VALUE, getwVariable());
+            c3.addTerm(bigM, getwVariable());
             result.add(c3);
             // Add C.13
             Constraint c4 = new Constraint(CompareType.EQ, 0);
@@ -221,47 +268,52 @@ public class SRVMBidderPartialMIP extends PartialMIP {
         return result;
     }
 
+    /**
+     * Encodes C.14 - C.16, i.e., alpha, beta and gamma of the number of licenses X_{i,b}. As they share their input,
+     * they are encoded over their merged breakpoints with a single set of auxiliary variables per band.<br>
+     * The value of a bidder is non-decreasing in alpha, beta and gamma, hence their outputs are only ever pushed
+     * upwards by the (maximized) objective. Concave functions, such as alpha, are therefore encoded without binary
+     * variables.
+     */
     Set<PartialMIP> generatePiecewiseLinearFunctionConstraints() {
+        if (piecewiseLinearPartialMips != null) {
+            return piecewiseLinearPartialMips;
+        }
         Set<PartialMIP> result = new HashSet<>();
         for (Band band : bidder.getWorld().getBands()) {
-            // Add C.14
-            ContinuousPiecewiseLinearFunction funcAlpha = alpha(band);
-            Variable inputAlpha = worldPartialMip.getXVariable(bidder, band);
-            Variable outputAlpha = getAlphaVariable(band);
-            PiecewiseLinearPartialMIP partialMipAlpha =
-                    new PiecewiseLinearPartialMIP(funcAlpha,
-                            inputAlpha,
-                            outputAlpha,
-                            "aux_alpha_helper_" + createIndex(bidder, band) + "_");
-            result.add(partialMipAlpha);
-
-            // Add C.15
-            ContinuousPiecewiseLinearFunction funcBeta = beta(band);
-            Variable inputBeta = worldPartialMip.getXVariable(bidder, band);
-            Variable outputBeta = getBetaVariable(band);
-            PiecewiseLinearPartialMIP partialMipBeta =
-                    new PiecewiseLinearPartialMIP(funcBeta,
-                            inputBeta,
-                            outputBeta,
-                            "aux_beta_helper_" + createIndex(bidder, band) + "_");
-            result.add(partialMipBeta);
-
-            // Add C.16
-            ContinuousPiecewiseLinearFunction funcGamma = gamma(band);
-            Variable inputGamma = worldPartialMip.getXVariable(bidder, band);
-            Variable outputGamma = getGammaVariable(band);
-            PiecewiseLinearPartialMIP partialMipGamma =
-                    new PiecewiseLinearPartialMIP(funcGamma,
-                            inputGamma,
-                            outputGamma,
-                            "aux_gamma_helper_" + createIndex(bidder, band) + "_");
-            result.add(partialMipGamma);
+            MultiPiecewiseLinearPartialMIP partialMip =
+                    new MultiPiecewiseLinearPartialMIP(Arrays.asList(alpha(band), beta(band), gamma(band)),
+                            worldPartialMip.getXVariable(bidder, band),
+                            Arrays.asList(getAlphaVariable(band), getBetaVariable(band), getGammaVariable(band)),
+                            "aux_value_helper_" + createIndex(bidder, band) + "_",
+                            OutputDirection.MAXIMIZED,
+                            piecewiseLinearEncoding);
+            result.add(partialMip);
         }
-        return result;
+        piecewiseLinearPartialMips = Collections.unmodifiableSet(result);
+        return piecewiseLinearPartialMips;
     }
 
     private ContinuousPiecewiseLinearFunction alpha(Band band) {
         int threshold = bidder.getSynergyThreshold().get(band.getName());
+        return functionCache.computeIfAbsent(cacheKey("alpha", band, threshold), key -> alpha(band, threshold));
+    }
+
+    private ContinuousPiecewiseLinearFunction beta(Band band) {
+        int threshold = bidder.getSynergyThreshold().get(band.getName());
+        return functionCache.computeIfAbsent(cacheKey("beta", band, threshold), key -> beta(band, threshold));
+    }
+
+    private ContinuousPiecewiseLinearFunction gamma(Band band) {
+        int threshold = bidder.getSynergyThreshold().get(band.getName());
+        return functionCache.computeIfAbsent(cacheKey("gamma", band, threshold), key -> gamma(band, threshold));
+    }
+
+    private static String cacheKey(String function, Band band, int threshold) {
+        return function + "_" + band.getNumberOfLicenses() + "_" + threshold;
+    }
+
+    private static ContinuousPiecewiseLinearFunction alpha(Band band, int threshold) {
         // Must ensure all BigDecimals have the same scale, as they are used as keys in a Map
         final int scale = 0;
         Map<BigDecimal, BigDecimal> breakpoints = new HashMap<>();
@@ -277,8 +329,7 @@ public class SRVMBidderPartialMIP extends PartialMIP {
         return result;
     }
 
-    private ContinuousPiecewiseLinearFunction beta(Band band) {
-        int threshold = bidder.getSynergyThreshold().get(band.getName());
+    private static ContinuousPiecewiseLinearFunction beta(Band band, int threshold) {
         // Must ensure all BigDecimals have the same scale, as they are used as keys in a Map
         final int scale = 0;
         Map<BigDecimal, BigDecimal> breakpoints = new HashMap<>();
@@ -293,8 +344,7 @@ public class SRVMBidderPartialMIP extends PartialMIP {
         return result;
     }
 
-    private ContinuousPiecewiseLinearFunction gamma(Band band) {
-        int threshold = bidder.getSynergyThreshold().get(band.getName());
+    private static ContinuousPiecewiseLinearFunction gamma(Band band, int threshold) {
         // Must ensure all BigDecimals have the same scale, as they are used as keys in a Map
         final int scale = 0;
         Map<BigDecimal, BigDecimal> breakpoints = new HashMap<>();
@@ -6,6 +6,8 @@
 package org.spectrumauctions.sats.opt.model.srvm;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import edu.harvard.econcs.jopt.solver.IMIPResult;
 import edu.harvard.econcs.jopt.solver.SolveParam;
 import edu.harvard.econcs.jopt.solver.client.SolverClient;
@@ -21,10 +23,13 @@ import org.spectrumauctions.sats.core.model.srvm.SRVMBidder;
 import org.spectrumauctions.sats.core.model.srvm.SRVMWorld;
 import org.spectrumauctions.sats.opt.model.EfficientAllocator;
 import org.spectrumauctions.sats.opt.model.GenericAllocation;
+import org.spectrumauctions.sats.opt.imip.BoundPropagation;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
 import org.spectrumauctions.sats.opt.model.ModelMIP;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -45,11 +50,26 @@ public class SRVM_MIP extends ModelMIP implements EfficientAllocator<GenericAllo
      * a non-zero scaling factor for the calculation is chosen.
      */
     public static BigDecimal highestValidVal = BigDecimal.valueOf(MIP.MAX_VALUE - 1000000);
+
+    /**
+     * The values of the full bundle, memoised per bidder, as they are needed for every MIP built for a population.
+     * The bidders are weakly referenced. The world is stored along with the value, such that the value is
+     * recalculated if the bidder refers to another world.
+     */
+    private static final Cache<SRVMBidder, SimpleImmutableEntry<SRVMWorld, BigDecimal>> fullBundleValues =
+            CacheBuilder.newBuilder().weakKeys().build();
     private SRVMWorldPartialMip worldPartialMip;
     private Map<SRVMBidder, SRVMBidderPartialMIP> bidderPartialMips;
     private SRVMWorld world;
 
     public SRVM_MIP(Collection<SRVMBidder> bidders) {
+        this(bidders, Encoding.AUTOMATIC);
+    }
+
+    /**
+     * @param piecewiseLinearEncoding the encoding of the alpha, beta and gamma functions of all bidders
+     */
+    public SRVM_MIP(Collection<SRVMBidder> bidders, Encoding piecewiseLinearEncoding) {
         Preconditions.checkNotNull(bidders);
         Preconditions.checkArgument(bidders.size() > 0);
         world = bidders.iterator().next().getWorld();
@@ -65,9 +85,12 @@ public class SRVM_MIP extends ModelMIP implements EfficientAllocator<GenericAllo
         for (SRVMBidder bidder : bidders) {
             SRVMBidderPartialMIP bidderPartialMIP;
             bidderPartialMIP = new SRVMBidderPartialMIP(bidder, worldPartialMip);
+            bidderPartialMIP.setPiecewiseLinearEncoding(piecewiseLinearEncoding);
             bidderPartialMIP.appendToMip(getMip());
             bidderPartialMips.put(bidder, bidderPartialMIP);
         }
+        // Derive finite bounds for the auxiliary variables from the bounds of the quantities
+        BoundPropagation.tighten(getMip());
     }
 
     public static double calculateScalingFactor(Collection<SRVMBidder> bidders) {
@@ -86,14 +109,22 @@ public class SRVM_MIP extends ModelMIP implements EfficientAllocator<GenericAllo
      * @return
      */
     public static BigDecimal biggestUnscaledPossibleValue(Collection<SRVMBidder> bidders) {
-        BigDecimal biggestValue = BigDecimal.ZERO;
-        for (SRVMBidder bidder : bidders) {
-            BigDecimal val = bidder.calculateValue(new Bundle<>(bidder.getWorld().getLicenses()));
-            if (val.compareTo(biggestValue) > 0) {
-                biggestValue = val;
-            }
+        return bidders.parallelStream()
+                .map(SRVM_MIP::fullBundleValue)
+                .reduce(BigDecimal.ZERO, BigDecimal::max);
+    }
+
+    /**
+     * @return the value of the bidder for all licenses of its world, calculated once per bidder and world
+     */
+    static BigDecimal fullBundleValue(SRVMBidder bidder) {
+        SimpleImmutableEntry<SRVMWorld, BigDecimal> cached = fullBundleValues.getIfPresent(bidder);
+        if (cached == null || cached.getKey() != bidder.getWorld()) {
+            BigDecimal value = bidder.calculateValue(new Bundle<>(bidder.getWorld().getLicenses()));
+            cached = new SimpleImmutableEntry<>(bidder.getWorld(), value);
+            fullBundleValues.put(bidder, cached);
         }
-        return biggestValue;
+        return cached.getValue();
     }
 
     public void addConstraint(Constraint constraint) {
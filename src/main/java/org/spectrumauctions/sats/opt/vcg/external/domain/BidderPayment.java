@@ -1,24 +1,51 @@
 package org.spectrumauctions.sats.opt.vcg.external.domain;
 
+import com.google.common.base.Preconditions;
 import org.spectrumauctions.sats.core.model.Bidder;
 
 /**
  * This class represents the Payment made by a single {@link Bidder}.
+ * If the payment was only computed up to some tolerance, the exact payment lies within
+ * [{@link #getLowerBound()}, {@link #getUpperBound()}].
  */
 public class BidderPayment {
     private final double amount;
+    private final double lowerBound;
+    private final double upperBound;
 
     public BidderPayment(double amount) {
+        this(amount, amount, amount);
+    }
+
+    public BidderPayment(double amount, double lowerBound, double upperBound) {
+        Preconditions.checkArgument(lowerBound <= amount && amount <= upperBound, "Payment must be within its bounds");
         this.amount = amount;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
     }
 
     public double getAmount() {
         return amount;
     }
 
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    public boolean isExact() {
+        return lowerBound == upperBound;
+    }
+
     @Override
     public String toString() {
-        String returnString = "Payment: " + getAmount() + "\n";
-        return returnString;
+        String returnString = "Payment: " + getAmount();
+        if (!isExact()) {
+            returnString += " [" + getLowerBound() + ", " + getUpperBound() + "]";
+        }
+        return returnString + "\n";
     }
 }
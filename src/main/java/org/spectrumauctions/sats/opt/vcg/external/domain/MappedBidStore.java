@@ -0,0 +1,257 @@
+package org.spectrumauctions.sats.opt.vcg.external.domain;
+
+import com.google.common.base.Preconditions;
+import org.spectrumauctions.sats.core.bidlang.xor.XORBid;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.core.model.Good;
+import org.spectrumauctions.sats.opt.vcg.external.winnerdetermination.StreamingXORWinnerDetermination;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only, memory-mapped store of XOR bids in a compact binary format, intended for auctions
+ * with too many bundle bids to be held as {@link XORValue} objects on the heap.<br>
+ * The file starts with a header (magic number, format version, number of goods, number of bundle bids),
+ * followed by one record per bundle bid:
+ * <ul>
+ * <li>the bidder id (8 bytes)</li>
+ * <li>the value as double (8 bytes)</li>
+ * <li>the number of goods in the bundle as unsigned varint</li>
+ * <li>the sorted good indices, delta-encoded as unsigned varints</li>
+ * </ul>
+ * Good indices refer to the list of goods passed to {@link #write(Path, List, Iterable)} and {@link #open(Path, List, Collection)}.
+ * The records are read directly from the mapped file, such that no per-bid objects are created
+ * when the bids are streamed into a {@link StreamingXORWinnerDetermination}.
+ */
+public final class MappedBidStore<T extends Good> implements Closeable {
+
+    private static final int MAGIC = 0x53415442;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long numberOfBundleBids;
+    private final List<T> goods;
+    private final Map<Long, Bidder<T>> bidders;
+    private final int maxRecordBytes;
+
+    /**
+     * Callback receiving the bundle bids of the store in their primitive form.
+     * The passed array is reused between calls and only its first <code>length</code> entries are valid.
+     */
+    @FunctionalInterface
+    public interface BundleBidConsumer {
+        void accept(long bidderId, double value, int[] goodIndices, int length);
+    }
+
+    private MappedBidStore(FileChannel channel, List<T> goods, Collection<? extends Bidder<T>> bidders) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.goods = Collections.unmodifiableList(new ArrayList<>(goods));
+        this.bidders = new HashMap<>();
+        for (Bidder<T> bidder : bidders) {
+            this.bidders.put(bidder.getId(), bidder);
+        }
+        if (fileSize < HEADER_BYTES) {
+            throw new IOException("File too small to be a bid store");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a bid store file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported bid store version " + version);
+        }
+        int numberOfGoods = header.getInt();
+        if (numberOfGoods != goods.size()) {
+            throw new IOException("Bid store was written for " + numberOfGoods + " goods, but " + goods.size() + " were passed");
+        }
+        this.numberOfBundleBids = header.getLong();
+        this.maxRecordBytes = 8 + 8 + 5 + 5 * numberOfGoods;
+    }
+
+    /**
+     * Opens a bid store previously written by {@link #write(Path, List, Iterable)}
+     *
+     * @param goods   the goods, in the same order as when writing the store
+     * @param bidders the bidders whose ids appear in the store
+     */
+    public static <T extends Good> MappedBidStore<T> open(Path file, List<T> goods, Collection<? extends Bidder<T>> bidders) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MappedBidStore<>(channel, goods, bidders);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the passed bids in the binary store format.
+     *
+     * @param goods the goods which may appear in the bids. Their position in the list defines their index in the store.
+     */
+    public static <T extends Good> void write(Path file, List<T> goods, Iterable<XORBid<T>> bids) throws IOException {
+        Map<Good, Integer> goodIndex = new HashMap<>();
+        for (int i = 0; i < goods.size(); i++) {
+            goodIndex.put(goods.get(i), i);
+        }
+        long numberOfBundleBids = 0;
+        int[] indices = new int[goods.size()];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            writeIntLE(out, MAGIC);
+            writeIntLE(out, VERSION);
+            writeIntLE(out, goods.size());
+            writeLongLE(out, 0); // Number of bundle bids, patched below
+            for (XORBid<T> bid : bids) {
+                long bidderId = bid.getBidder().getId();
+                for (XORValue<T> bundleBid : bid.getValues()) {
+                    int length = 0;
+                    for (T good : bundleBid.getLicenses()) {
+                        Integer index = goodIndex.get(good);
+                        Preconditions.checkArgument(index != null, "Good %s is not part of the store", good);
+                        indices[length++] = index;
+                    }
+                    Arrays.sort(indices, 0, length);
+                    writeLongLE(out, bidderId);
+                    writeLongLE(out, Double.doubleToRawLongBits(bundleBid.value().doubleValue()));
+                    writeVarInt(out, length);
+                    int previous = 0;
+                    for (int i = 0; i < length; i++) {
+                        writeVarInt(out, indices[i] - previous);
+                        previous = indices[i];
+                    }
+                    numberOfBundleBids++;
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            byte[] count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(numberOfBundleBids).array();
+            channel.write(ByteBuffer.wrap(count), HEADER_BYTES - 8);
+        }
+    }
+
+    public long getNumberOfBundleBids() {
+        return numberOfBundleBids;
+    }
+
+    public List<T> getGoods() {
+        return goods;
+    }
+
+    /**
+     * Passes all bundle bids, in file order, to the consumer, reading them directly from the mapped file.
+     */
+    public void forEach(BundleBidConsumer consumer) throws IOException {
+        int[] indices = new int[goods.size()];
+        long windowStart = HEADER_BYTES;
+        MappedByteBuffer window = map(windowStart);
+        for (long read = 0; read < numberOfBundleBids; read++) {
+            if (window.remaining() < maxRecordBytes && windowStart + window.limit() < fileSize) {
+                // Remap such that the next record is fully contained in the window
+                windowStart += window.position();
+                window = map(windowStart);
+            }
+            long bidderId = window.getLong();
+            double value = window.getDouble();
+            int length = readVarInt(window);
+            int previous = 0;
+            for (int i = 0; i < length; i++) {
+                previous += readVarInt(window);
+                indices[i] = previous;
+            }
+            consumer.accept(bidderId, value, indices, length);
+        }
+    }
+
+    /**
+     * Streams all bundle bids of this store into a new {@link StreamingXORWinnerDetermination}.
+     */
+    public StreamingXORWinnerDetermination<T> createWinnerDetermination() throws IOException {
+        StreamingXORWinnerDetermination<T> wd = new StreamingXORWinnerDetermination<>(goods);
+        forEach((bidderId, value, goodIndices, length) -> wd.ingest(getBidder(bidderId), value, goodIndices, length));
+        return wd;
+    }
+
+    /**
+     * Materializes the whole store as heap-based {@link Bids}, e.g. to create an {@link Auction} for mechanisms
+     * which require one. Only use this for stores which fit into memory.
+     */
+    public Bids<T> readBids() throws IOException {
+        Map<Bidder<T>, List<XORValue<T>>> values = new LinkedHashMap<>();
+        forEach((bidderId, value, goodIndices, length) -> {
+            Bundle<T> bundle = new Bundle<>();
+            for (int i = 0; i < length; i++) {
+                bundle.add(goods.get(goodIndices[i]));
+            }
+            values.computeIfAbsent(getBidder(bidderId), b -> new ArrayList<>()).add(new XORValue<>(bundle, BigDecimal.valueOf(value)));
+        });
+        List<XORBid<T>> bids = new ArrayList<>();
+        for (Map.Entry<Bidder<T>, List<XORValue<T>>> entry : values.entrySet()) {
+            bids.add(new XORBid.Builder<>(entry.getKey(), entry.getValue()).build());
+        }
+        return new Bids<>(bids);
+    }
+
+    private Bidder<T> getBidder(long bidderId) {
+        Bidder<T> bidder = bidders.get(bidderId);
+        if (bidder == null) {
+            throw new IllegalStateException("Bid store contains unknown bidder id " + bidderId);
+        }
+        return bidder;
+    }
+
+    private MappedByteBuffer map(long start) throws IOException {
+        long size = Math.min(MAX_WINDOW_BYTES, fileSize - start);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeIntLE(DataOutputStream out, int value) throws IOException {
+        out.writeInt(Integer.reverseBytes(value));
+    }
+
+    private static void writeLongLE(DataOutputStream out, long value) throws IOException {
+        out.writeLong(Long.reverseBytes(value));
+    }
+}
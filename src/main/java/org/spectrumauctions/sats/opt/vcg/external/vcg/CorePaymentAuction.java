@@ -0,0 +1,255 @@
+package org.spectrumauctions.sats.opt.vcg.external.vcg;
+
+import com.google.common.base.Preconditions;
+import edu.harvard.econcs.jopt.solver.IMIP;
+import edu.harvard.econcs.jopt.solver.IMIPResult;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
+import edu.harvard.econcs.jopt.solver.mip.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Good;
+import org.spectrumauctions.sats.opt.vcg.external.domain.*;
+import org.spectrumauctions.sats.opt.vcg.external.domain.mechanisms.AuctionMechanism;
+import org.spectrumauctions.sats.opt.vcg.external.winnerdetermination.XORWinnerDetermination;
+
+import java.util.*;
+
+/**
+ * Computes bidder-optimal core payments, i.e., payments minimizing the total payments among all payments in the core,
+ * using the constraint generation algorithm by Day and Raghavan (2007).<br>
+ * Starting from the VCG payments, a separation problem finds the most blocking coalition for the current payments.
+ * This is the winner determination in which every winner j bids her value reduced by her current surplus
+ * b_j(S_j) - p_j. If the coalition's value exceeds the current revenue, the corresponding core constraint
+ * is added and the payments are re-optimized.<br>
+ * The separation MIP is built once and kept alive: the surplus of each winner enters its objective
+ * through a single auxiliary variable, such that each iteration only updates one objective coefficient per winner.
+ */
+public class CorePaymentAuction<T extends Good> implements AuctionMechanism {
+
+    private static final Logger logger = LogManager.getLogger(CorePaymentAuction.class);
+
+    private static final int MAX_ITERATIONS = 1000;
+
+    private final Auction<T> auction;
+    private AuctionResult<T> result;
+    private double tolerance = 1e-6;
+    private boolean vcgNearest = false;
+    private final List<Long> iterationMillis = new ArrayList<>();
+
+    public CorePaymentAuction(Auction<T> auction) {
+        this.auction = auction;
+    }
+
+    /**
+     * @param tolerance Coalitions whose value exceeds the revenue by at most this amount are not considered blocking
+     */
+    public void setTolerance(double tolerance) {
+        Preconditions.checkArgument(tolerance >= 0);
+        this.tolerance = tolerance;
+        this.result = null;
+    }
+
+    /**
+     * If set, ties among the revenue-minimizing core payments are broken by choosing the payments closest
+     * (in euclidean distance) to the VCG payments. This requires a solver supporting quadratic objectives.
+     */
+    public void setVCGNearest(boolean vcgNearest) {
+        this.vcgNearest = vcgNearest;
+        this.result = null;
+    }
+
+    @Override
+    public AuctionResult<T> getAuctionResult() {
+        if (result == null) {
+            result = calculateCorePayments();
+        }
+        return result;
+    }
+
+    @Override
+    public Payment<T> getPayment() {
+        return getAuctionResult().getPayment();
+    }
+
+    @Override
+    public XORAllocation<T> calculateAllocation() {
+        return getAuctionResult().getAllocation();
+    }
+
+    /**
+     * @return The wall time of each constraint generation iteration (separation and payment update), in milliseconds
+     */
+    public List<Long> getIterationMillis() {
+        getAuctionResult();
+        return Collections.unmodifiableList(iterationMillis);
+    }
+
+    private AuctionResult<T> calculateCorePayments() {
+        iterationMillis.clear();
+        AuctionResult<T> vcgResult = new XORVCGAuction<>(auction).getAuctionResult();
+        XORAllocation<T> allocation = vcgResult.getAllocation();
+        List<Bidder<T>> winners = new ArrayList<>(allocation.getWinners());
+
+        Map<Bidder<T>, Double> vcgPayments = new HashMap<>();
+        Map<Bidder<T>, Double> payments = new HashMap<>();
+        for (Bidder<T> winner : winners) {
+            double vcgPayment = vcgResult.getPayment().paymentOf(winner).getAmount();
+            vcgPayments.put(winner, vcgPayment);
+            payments.put(winner, vcgPayment);
+        }
+
+        SeparationWinnerDetermination<T> separation = new SeparationWinnerDetermination<>(auction, winners);
+        List<CoreConstraint<T>> coreConstraints = new ArrayList<>();
+        for (int iteration = 1; iteration <= MAX_ITERATIONS; iteration++) {
+            long start = System.currentTimeMillis();
+            Map<Bidder<T>, Double> surplus = new HashMap<>();
+            double revenue = 0;
+            for (Bidder<T> winner : winners) {
+                surplus.put(winner, allocation.getAllocation(winner).getTradeValue() - payments.get(winner));
+                revenue += payments.get(winner);
+            }
+            separation.setSurplus(surplus);
+            XORAllocation<T> blockingAllocation = separation.solve();
+
+            double coalitionValue = 0;
+            Set<Bidder<T>> coalition = blockingAllocation.getWinners();
+            for (Bidder<T> member : coalition) {
+                coalitionValue += blockingAllocation.getAllocation(member).getTradeValue() - surplus.getOrDefault(member, 0.0);
+            }
+            long separationMillis = System.currentTimeMillis() - start;
+
+            if (coalitionValue <= revenue + tolerance) {
+                iterationMillis.add(separationMillis);
+                logger.info("Core payments found after {} iterations. Separation: {} ms. Revenue: {}", iteration, separationMillis, revenue);
+                break;
+            }
+
+            // Winners in the blocking coalition keep their current payments, the others must pay at least the difference
+            double rhs = coalitionValue;
+            Set<Bidder<T>> blockedWinners = new HashSet<>(winners);
+            for (Bidder<T> member : coalition) {
+                if (blockedWinners.remove(member)) {
+                    rhs -= payments.get(member);
+                }
+            }
+            coreConstraints.add(new CoreConstraint<>(blockedWinners, rhs));
+            payments = solvePayments(winners, allocation, vcgPayments, coreConstraints);
+
+            long totalMillis = System.currentTimeMillis() - start;
+            iterationMillis.add(totalMillis);
+            logger.info("Core iteration {}: blocking coalition of {} bidders with value {} vs revenue {}. Separation: {} ms, payment update: {} ms",
+                    iteration, coalition.size(), coalitionValue, revenue, separationMillis, totalMillis - separationMillis);
+            if (iteration == MAX_ITERATIONS) {
+                logger.warn("Core constraint generation stopped after {} iterations without converging", MAX_ITERATIONS);
+            }
+        }
+
+        Map<Bidder<T>, BidderPayment> paymentMap = new HashMap<>();
+        for (Bidder<T> winner : winners) {
+            paymentMap.put(winner, new BidderPayment(payments.get(winner)));
+        }
+        return new AuctionResult<>(new Payment<>(paymentMap), allocation);
+    }
+
+    /**
+     * Minimizes the total payments subject to the core constraints found so far, individual rationality
+     * and the VCG payments as lower bound. If {@link #vcgNearest} is set, a second stage selects the
+     * revenue-minimizing payments closest to the VCG payments.
+     */
+    private Map<Bidder<T>, Double> solvePayments(List<Bidder<T>> winners, XORAllocation<T> allocation,
+                                                 Map<Bidder<T>, Double> vcgPayments, List<CoreConstraint<T>> coreConstraints) {
+        MIP paymentProgram = new MIP();
+        paymentProgram.setObjectiveMax(false);
+        Map<Bidder<T>, Variable> paymentVariables = new HashMap<>();
+        for (Bidder<T> winner : winners) {
+            double bid = allocation.getAllocation(winner).getTradeValue();
+            double vcgPayment = vcgPayments.get(winner);
+            Variable p = new Variable("p_" + winner.getId(), VarType.DOUBLE, Math.min(vcgPayment, bid), bid);
+            paymentProgram.add(p);
+            paymentProgram.addObjectiveTerm(1, p);
+            paymentVariables.put(winner, p);
+        }
+        for (CoreConstraint<T> coreConstraint : coreConstraints) {
+            Constraint constraint = new Constraint(CompareType.GEQ, coreConstraint.rhs);
+            for (Bidder<T> winner : coreConstraint.blockedWinners) {
+                constraint.addTerm(1, paymentVariables.get(winner));
+            }
+            paymentProgram.add(constraint);
+        }
+        IMIPResult mipResult = new SolverClient().solve(paymentProgram);
+
+        if (vcgNearest) {
+            Constraint revenue = new Constraint(CompareType.LEQ, mipResult.getObjectiveValue() + tolerance);
+            paymentProgram.clearObjective();
+            for (Bidder<T> winner : winners) {
+                Variable p = paymentVariables.get(winner);
+                revenue.addTerm(1, p);
+                paymentProgram.addObjectiveTerm(1, p, p);
+                paymentProgram.addObjectiveTerm(-2 * vcgPayments.get(winner), p);
+            }
+            paymentProgram.add(revenue);
+            mipResult = new SolverClient().solve(paymentProgram);
+        }
+
+        Map<Bidder<T>, Double> payments = new HashMap<>();
+        for (Bidder<T> winner : winners) {
+            payments.put(winner, mipResult.getValue(paymentVariables.get(winner)));
+        }
+        return payments;
+    }
+
+    private static final class CoreConstraint<T extends Good> {
+        private final Set<Bidder<T>> blockedWinners;
+        private final double rhs;
+
+        private CoreConstraint(Set<Bidder<T>> blockedWinners, double rhs) {
+            this.blockedWinners = blockedWinners;
+            this.rhs = rhs;
+        }
+    }
+
+    /**
+     * The XOR winner determination extended by a variable gamma_j = sum_S x_{j,S} per winner j,
+     * which is charged the current surplus of j in the objective.
+     */
+    private static final class SeparationWinnerDetermination<T extends Good> extends XORWinnerDetermination<T> {
+
+        private final Map<Bidder<T>, Variable> gammaVariables = new HashMap<>();
+        private final Map<Bidder<T>, LinearTerm> surplusTerms = new HashMap<>();
+
+        private SeparationWinnerDetermination(Auction<T> auction, Collection<Bidder<T>> winners) {
+            super(auction);
+            IMIP mip = getMIP();
+            for (Bidder<T> winner : winners) {
+                Variable gamma = new Variable("gamma_" + winner.getId(), VarType.DOUBLE, 0, 1);
+                mip.add(gamma);
+                Constraint gammaDefinition = new Constraint(CompareType.EQ, 0);
+                gammaDefinition.addTerm(-1, gamma);
+                for (XORValue<T> bundleBid : auction.getBid(winner).getValues()) {
+                    gammaDefinition.addTerm(1, getBidVariable(bundleBid));
+                }
+                mip.add(gammaDefinition);
+                gammaVariables.put(winner, gamma);
+            }
+        }
+
+        private void setSurplus(Map<Bidder<T>, Double> surplus) {
+            IMIP mip = getMIP();
+            for (Map.Entry<Bidder<T>, Variable> entry : gammaVariables.entrySet()) {
+                LinearTerm previous = surplusTerms.get(entry.getKey());
+                if (previous != null) {
+                    mip.removeObjectiveTerm(previous);
+                }
+                LinearTerm term = new LinearTerm(-surplus.get(entry.getKey()), entry.getValue());
+                mip.addObjectiveTerm(term);
+                surplusTerms.put(entry.getKey(), term);
+            }
+        }
+
+        private XORAllocation<T> solve() {
+            return solveWinnerDetermination();
+        }
+    }
+}
@@ -25,10 +25,12 @@ public class ReservePriceVCGAuction<T extends Good> extends XORVCGAuction<T> {
         AuctionResult<T> result = super.calculateVCGPrices(adaptedAuction);
         Map<Bidder<T>, BidderPayment> newPaymentMap = new HashMap<>(result.getAllocation().getWinners().size());
         for (Bidder<T> winner : result.getAllocation().getWinners()) {
-            double vcgPayment = result.getPayment().paymentOf(winner).getAmount();
+            BidderPayment vcgPayment = result.getPayment().paymentOf(winner);
             double reservePrice = result.getAllocation().getAllocation(winner).getGoods().size() * goodReservePrice;
-            double newPrice = Math.max(vcgPayment, reservePrice);
-            newPaymentMap.put(winner, new BidderPayment(newPrice));
+            double newPrice = Math.max(vcgPayment.getAmount(), reservePrice);
+            newPaymentMap.put(winner, new BidderPayment(newPrice,
+                    Math.max(vcgPayment.getLowerBound(), reservePrice),
+                    Math.max(vcgPayment.getUpperBound(), reservePrice)));
         }
         Payment<T> newPayment = new Payment<>(newPaymentMap);
         return new AuctionResult<T>(newPayment, result.getAllocation());
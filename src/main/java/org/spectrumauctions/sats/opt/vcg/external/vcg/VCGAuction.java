@@ -1,23 +1,42 @@
 package org.spectrumauctions.sats.opt.vcg.external.vcg;
 
+import com.google.common.base.Preconditions;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
 import org.spectrumauctions.sats.core.model.Bidder;
 import org.spectrumauctions.sats.core.model.Good;
 import org.spectrumauctions.sats.opt.vcg.external.domain.*;
 import org.spectrumauctions.sats.opt.vcg.external.domain.mechanisms.AuctionMechanism;
 import org.spectrumauctions.sats.opt.vcg.external.winnerdetermination.WinnerDetermination;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 public abstract class VCGAuction<T extends Good> implements AuctionMechanism {
 
     private AuctionResult<T> result;
     private Auction<T> auction;
+    private double paymentTolerance = 0;
 
     public VCGAuction(Auction<T> auction) {
         this.auction = auction;
     }
 
+    /**
+     * Sets the absolute tolerance up to which the VCG payments have to be computed.<br>
+     * Each marginal economy is then only solved until its incumbent is within the tolerance of the best bound,
+     * and is skipped entirely if a greedy lower bound and the LP relaxation already pin it down.
+     * The exact payments are within the bounds of the returned {@link BidderPayment}s.
+     * The default tolerance of 0 computes exact payments.
+     */
+    public void setPaymentTolerance(double paymentTolerance) {
+        Preconditions.checkArgument(paymentTolerance >= 0);
+        this.paymentTolerance = paymentTolerance;
+        this.result = null;
+    }
+
+    public double getPaymentTolerance() {
+        return paymentTolerance;
+    }
+
     @Override
     public AuctionResult<T> getAuctionResult() {
         if (result == null) {
@@ -37,7 +56,7 @@ public abstract class VCGAuction<T extends Good> implements AuctionMechanism {
     }
 
     protected AuctionResult<T> calculateVCGPrices(Auction<T> auction) {
-        WinnerDetermination baseWD = getWinnerDetermination(auction);
+        WinnerDetermination<T> baseWD = getWinnerDetermination(auction);
         XORAllocation<T> baseAllocation = baseWD.calculateAllocation();
 
         Map<Bidder<T>, BidderPayment> payments = new HashMap<>();
@@ -45,7 +64,26 @@ public abstract class VCGAuction<T extends Good> implements AuctionMechanism {
 
             double valueWithoutBidder = baseAllocation.getTotalAllocationValue() - baseAllocation.getAllocation(bidder).getTradeValue();
             Auction<T> auctionWithoutBidder = auction.without(bidder);
-            WinnerDetermination wdWithoutBidder = getWinnerDetermination(auctionWithoutBidder);
+
+            if (paymentTolerance > 0) {
+                double lowerBound = greedyLowerBound(auctionWithoutBidder, baseAllocation);
+                double upperBound = upperBoundOnWelfare(auctionWithoutBidder);
+                if (upperBound - lowerBound <= paymentTolerance) {
+                    payments.put(bidder, new BidderPayment(lowerBound - valueWithoutBidder,
+                            lowerBound - valueWithoutBidder, Math.max(lowerBound, upperBound) - valueWithoutBidder));
+                    continue;
+                }
+                WinnerDetermination<T> wdWithoutBidder = getWinnerDetermination(auctionWithoutBidder);
+                wdWithoutBidder.setAbsoluteObjectiveGap(paymentTolerance);
+                XORAllocation<T> allocationWithoutBidder = wdWithoutBidder.calculateAllocation();
+                double incumbent = Math.max(lowerBound, allocationWithoutBidder.getTotalAllocationValue());
+                double bound = Math.max(incumbent, Math.min(upperBound, incumbent + paymentTolerance));
+                payments.put(bidder, new BidderPayment(incumbent - valueWithoutBidder,
+                        incumbent - valueWithoutBidder, bound - valueWithoutBidder));
+                continue;
+            }
+
+            WinnerDetermination<T> wdWithoutBidder = getWinnerDetermination(auctionWithoutBidder);
             XORAllocation<T> allocationWithoutBidder = wdWithoutBidder.calculateAllocation();
             double valueWDWithoutBidder = allocationWithoutBidder.getTotalAllocationValue();
 
@@ -57,12 +95,56 @@ public abstract class VCGAuction<T extends Good> implements AuctionMechanism {
         return new AuctionResult<>(payment, baseAllocation);
     }
 
+    /**
+     * Returns the value of a feasible allocation of the marginal economy: the trades of the efficient allocation
+     * of all bidders still present, greedily extended by the most valuable bundle bids of the other bidders
+     * which only contain goods not allocated yet.
+     */
+    private double greedyLowerBound(Auction<T> auctionWithoutBidder, XORAllocation<T> baseAllocation) {
+        double value = 0;
+        Set<Good> allocatedGoods = new HashSet<>();
+        List<XORValue<T>> candidates = new ArrayList<>();
+        Map<XORValue<T>, Bidder<T>> candidateBidders = new HashMap<>();
+        for (Bidder<T> bidder : auctionWithoutBidder.getBidders()) {
+            if (baseAllocation.isWinner(bidder)) {
+                value += baseAllocation.getAllocation(bidder).getTradeValue();
+                allocatedGoods.addAll(baseAllocation.getAllocation(bidder).getGoods());
+            } else {
+                for (XORValue<T> bundleBid : auctionWithoutBidder.getBid(bidder).getValues()) {
+                    candidates.add(bundleBid);
+                    candidateBidders.put(bundleBid, bidder);
+                }
+            }
+        }
+        candidates.sort(Comparator.comparing(XORValue<T>::value).reversed());
+        Set<Bidder<T>> served = new HashSet<>();
+        for (XORValue<T> bundleBid : candidates) {
+            Bidder<T> bidder = candidateBidders.get(bundleBid);
+            if (bundleBid.value().signum() > 0 && !served.contains(bidder)
+                    && Collections.disjoint(allocatedGoods, bundleBid.getLicenses())) {
+                served.add(bidder);
+                allocatedGoods.addAll(bundleBid.getLicenses());
+                value += bundleBid.value().doubleValue();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns an upper bound on the value of the efficient allocation of the passed auction,
+     * used to skip marginal economies when computing payments up to a tolerance.
+     * By default, no bound is known.
+     */
+    protected double upperBoundOnWelfare(Auction<T> auction) {
+        return Double.POSITIVE_INFINITY;
+    }
+
     /**
      * Returns a new {@link WinnerDetermination} using the WD defined in the subclass
      *
      * @param auction
      * @return
      */
-    protected abstract WinnerDetermination getWinnerDetermination(Auction<T> auction);
+    protected abstract WinnerDetermination<T> getWinnerDetermination(Auction<T> auction);
 
 }
@@ -12,8 +12,13 @@ public class XORVCGAuction<T extends Good> extends VCGAuction<T> {
     }
 
     @Override
-    protected WinnerDetermination getWinnerDetermination(Auction<T> auction) {
-        return new XORWinnerDetermination(auction);
+    protected WinnerDetermination<T> getWinnerDetermination(Auction<T> auction) {
+        return new XORWinnerDetermination<>(auction);
+    }
+
+    @Override
+    protected double upperBoundOnWelfare(Auction<T> auction) {
+        return XORWinnerDetermination.solveLPRelaxation(auction);
     }
 
 }
@@ -0,0 +1,225 @@
+package org.spectrumauctions.sats.opt.vcg.external.winnerdetermination;
+
+import com.google.common.base.Preconditions;
+import edu.harvard.econcs.jopt.solver.IMIP;
+import edu.harvard.econcs.jopt.solver.IMIPResult;
+import edu.harvard.econcs.jopt.solver.IMIPSolver;
+import edu.harvard.econcs.jopt.solver.SolveParam;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
+import edu.harvard.econcs.jopt.solver.mip.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Good;
+import org.spectrumauctions.sats.opt.vcg.external.domain.Auction;
+import org.spectrumauctions.sats.opt.vcg.external.domain.XORAllocation;
+
+import java.util.*;
+
+/**
+ * XOR winner determination based on column generation, for auctions with very many bundle bids per bidder.<br>
+ * The LP relaxation of the model of {@link XORWinnerDetermination} is solved over a restricted set of bundle bids
+ * (initially the most valuable ones of every bidder). Using the duals μ_i of the per-bidder constraints and π_j of
+ * the per-good constraints, bundle bids with positive reduced cost v - μ_i - Σ_{j in S} π_j are added to the
+ * restricted master, until no such bundle bid exists and the LP relaxation of the full model is solved.<br>
+ * The allocation is then obtained by an integer re-solve over the generated bundle bids (price-and-branch).
+ * This is a heuristic: an efficient allocation may need a bundle bid that was never generated.
+ * The gap to the LP bound is logged, and {@link #getLPBound()} is an upper bound on the efficient welfare.
+ */
+public class ColumnGenerationWinnerDetermination<T extends Good> extends WinnerDetermination<T> {
+
+    private static final Logger logger = LogManager.getLogger(ColumnGenerationWinnerDetermination.class);
+
+    private static final double REDUCED_COST_TOLERANCE = 1e-6;
+
+    private final int initialColumnsPerBidder;
+    private final int maxColumnsPerBidderAndIteration;
+
+    private final Set<XORValue<T>> generatedColumns = new LinkedHashSet<>();
+    private final Map<XORValue<T>, Variable> bidVariables = new HashMap<>();
+    private IMIP winnerDeterminationProgram;
+    private double lpBound = Double.NaN;
+    private int iterations = 0;
+
+    public ColumnGenerationWinnerDetermination(Auction<T> auction) {
+        this(auction, 10, 10);
+    }
+
+    /**
+     * @param initialColumnsPerBidder         number of most valuable bundle bids per bidder in the initial restricted master
+     * @param maxColumnsPerBidderAndIteration maximal number of bundle bids with positive reduced cost added per bidder and iteration
+     */
+    public ColumnGenerationWinnerDetermination(Auction<T> auction, int initialColumnsPerBidder, int maxColumnsPerBidderAndIteration) {
+        super(auction);
+        Preconditions.checkArgument(initialColumnsPerBidder > 0);
+        Preconditions.checkArgument(maxColumnsPerBidderAndIteration > 0);
+        this.initialColumnsPerBidder = initialColumnsPerBidder;
+        this.maxColumnsPerBidderAndIteration = maxColumnsPerBidderAndIteration;
+    }
+
+    @Override
+    protected IMIP getMIP() {
+        if (winnerDeterminationProgram == null) {
+            generateColumns();
+            winnerDeterminationProgram = createIntegerProgram();
+        }
+        return winnerDeterminationProgram;
+    }
+
+    @Override
+    protected XORAllocation<T> solveWinnerDetermination() {
+        XORAllocation<T> allocation = super.solveWinnerDetermination();
+        double value = allocation.getTotalAllocationValue();
+        logger.info("Column generation used {} of the bundle bids after {} iterations. Integer value: {}, LP bound: {}, gap: {}",
+                generatedColumns.size(), iterations, value, lpBound, lpBound - value);
+        return allocation;
+    }
+
+    /**
+     * Solves the LP relaxation by column generation, such that {@link #generatedColumns} contains
+     * all bundle bids of the optimal restricted master.
+     */
+    private void generateColumns() {
+        MIP master = new MIP();
+        master.setObjectiveMax(true);
+        master.setSolveParam(SolveParam.CALC_DUALS, true);
+        Map<Bidder<T>, Constraint> bidderConstraints = new HashMap<>();
+        Map<Good, Constraint> goodConstraints = new HashMap<>();
+        for (Bidder<T> bidder : getAuction().getBidders()) {
+            Constraint exclusiveBids = new Constraint(CompareType.LEQ, 1);
+            bidderConstraints.put(bidder, exclusiveBids);
+            master.add(exclusiveBids);
+        }
+
+        for (Bidder<T> bidder : getAuction().getBidders()) {
+            List<XORValue<T>> byValue = new ArrayList<>(getAuction().getBid(bidder).getValues());
+            byValue.sort(Comparator.comparing(XORValue<T>::value).reversed());
+            for (XORValue<T> bundleBid : byValue.subList(0, Math.min(initialColumnsPerBidder, byValue.size()))) {
+                addColumn(master, bidderConstraints.get(bidder), goodConstraints, bundleBid);
+            }
+        }
+
+        IMIPSolver solver = new SolverClient();
+        while (true) {
+            iterations++;
+            IMIPResult lpResult = solver.solve(master);
+            lpBound = lpResult.getObjectiveValue();
+            Map<Good, Double> goodDuals = new HashMap<>();
+            for (Map.Entry<Good, Constraint> entry : goodConstraints.entrySet()) {
+                goodDuals.put(entry.getKey(), lpResult.getDual(entry.getValue()));
+            }
+            int added = 0;
+            for (Bidder<T> bidder : getAuction().getBidders()) {
+                Constraint bidderConstraint = bidderConstraints.get(bidder);
+                double bidderDual = lpResult.getDual(bidderConstraint);
+                List<XORValue<T>> improving = new ArrayList<>();
+                Map<XORValue<T>, Double> reducedCosts = new HashMap<>();
+                for (XORValue<T> bundleBid : getAuction().getBid(bidder).getValues()) {
+                    if (generatedColumns.contains(bundleBid)) {
+                        continue;
+                    }
+                    // Goods without constraint in the master are not yet demanded by any column, their dual is zero
+                    double reducedCost = bundleBid.value().doubleValue() - bidderDual;
+                    for (Good good : bundleBid.getLicenses()) {
+                        reducedCost -= goodDuals.getOrDefault(good, 0.0);
+                    }
+                    if (reducedCost > REDUCED_COST_TOLERANCE) {
+                        improving.add(bundleBid);
+                        reducedCosts.put(bundleBid, reducedCost);
+                    }
+                }
+                improving.sort(Comparator.comparing((XORValue<T> b) -> reducedCosts.get(b)).reversed());
+                for (XORValue<T> bundleBid : improving.subList(0, Math.min(maxColumnsPerBidderAndIteration, improving.size()))) {
+                    addColumn(master, bidderConstraint, goodConstraints, bundleBid);
+                    added++;
+                }
+            }
+            logger.debug("Column generation iteration {}: LP value {}, {} columns added", iterations, lpBound, added);
+            if (added == 0) {
+                break;
+            }
+        }
+    }
+
+    private void addColumn(MIP master, Constraint bidderConstraint, Map<Good, Constraint> goodConstraints, XORValue<T> bundleBid) {
+        Variable bidI = new Variable("Bid " + bundleBid.getId(), VarType.DOUBLE, 0, 1);
+        master.add(bidI);
+        master.addObjectiveTerm(bundleBid.value().doubleValue(), bidI);
+        bidderConstraint.addTerm(1, bidI);
+        for (Good good : bundleBid.getLicenses()) {
+            Constraint noDoubleAssignment = goodConstraints.get(good);
+            if (noDoubleAssignment == null) {
+                noDoubleAssignment = new Constraint(CompareType.LEQ, 1);
+                goodConstraints.put(good, noDoubleAssignment);
+                master.add(noDoubleAssignment);
+            }
+            noDoubleAssignment.addTerm(1, bidI);
+        }
+        generatedColumns.add(bundleBid);
+    }
+
+    /**
+     * Creates the XOR winner determination MIP restricted to the generated bundle bids
+     */
+    private IMIP createIntegerProgram() {
+        MIP program = new MIP();
+        program.setObjectiveMax(true);
+        Map<Bidder<T>, Constraint> bidderConstraints = new HashMap<>();
+        Map<Good, Constraint> goodConstraints = new HashMap<>();
+        for (Bidder<T> bidder : getAuction().getBidders()) {
+            for (XORValue<T> bundleBid : getAuction().getBid(bidder).getValues()) {
+                if (!generatedColumns.contains(bundleBid)) {
+                    continue;
+                }
+                Variable bidI = new Variable("Bid " + bundleBid.getId(), VarType.BOOLEAN, 0, 1);
+                program.add(bidI);
+                program.addObjectiveTerm(bundleBid.value().doubleValue(), bidI);
+                bidVariables.put(bundleBid, bidI);
+                Constraint exclusiveBids = bidderConstraints.get(bidder);
+                if (exclusiveBids == null) {
+                    exclusiveBids = new Constraint(CompareType.LEQ, 1);
+                    bidderConstraints.put(bidder, exclusiveBids);
+                    program.add(exclusiveBids);
+                }
+                exclusiveBids.addTerm(1, bidI);
+                for (Good good : bundleBid.getLicenses()) {
+                    Constraint noDoubleAssignment = goodConstraints.get(good);
+                    if (noDoubleAssignment == null) {
+                        noDoubleAssignment = new Constraint(CompareType.LEQ, 1);
+                        goodConstraints.put(good, noDoubleAssignment);
+                        program.add(noDoubleAssignment);
+                    }
+                    noDoubleAssignment.addTerm(1, bidI);
+                }
+            }
+        }
+        return program;
+    }
+
+    @Override
+    protected Variable getBidVariable(XORValue<T> bundleBid) {
+        return bidVariables.get(bundleBid);
+    }
+
+    /**
+     * @return The value of the LP relaxation over all bundle bids, i.e., an upper bound on the efficient welfare.
+     */
+    public double getLPBound() {
+        getMIP();
+        return lpBound;
+    }
+
+    /**
+     * @return The bundle bids which were added to the model by column generation
+     */
+    public Set<XORValue<T>> getGeneratedColumns() {
+        getMIP();
+        return Collections.unmodifiableSet(generatedColumns);
+    }
+
+    public int getNumberOfIterations() {
+        getMIP();
+        return iterations;
+    }
+}
@@ -0,0 +1,250 @@
+package org.spectrumauctions.sats.opt.vcg.external.winnerdetermination;
+
+import com.google.common.base.Preconditions;
+import com.google.common.math.DoubleMath;
+import edu.harvard.econcs.jopt.solver.IMIP;
+import edu.harvard.econcs.jopt.solver.IMIPResult;
+import edu.harvard.econcs.jopt.solver.IMIPSolver;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
+import edu.harvard.econcs.jopt.solver.mip.*;
+import org.spectrumauctions.sats.core.bidlang.xor.XORBid;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.core.model.Good;
+import org.spectrumauctions.sats.opt.model.EfficientAllocator;
+import org.spectrumauctions.sats.opt.vcg.external.domain.BidderAllocation;
+import org.spectrumauctions.sats.opt.vcg.external.domain.XORAllocation;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * XOR winner determination which builds its MIP incrementally while bids are consumed,
+ * e.g. from an iterator over a bid file, instead of requiring a fully materialized
+ * {@link org.spectrumauctions.sats.opt.vcg.external.domain.Auction}.<br>
+ * For every ingested bundle bid, the decision variable, its objective term and its coefficients
+ * in the bidder and good constraints are emitted right away.
+ * Apart from the model itself, only a compact primitive index (bidder, value and good indices per bundle bid)
+ * is retained, such that the {@link XORValue} instances are only re-created for winning bundle bids.
+ */
+public class StreamingXORWinnerDetermination<T extends Good> implements EfficientAllocator<XORAllocation<T>> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final MIP winnerDeterminationProgram;
+
+    private final List<T> goods;
+    private final Map<Good, Integer> goodIndex;
+    private final Constraint[] goodConstraints;
+
+    private final List<Bidder<T>> bidders = new ArrayList<>();
+    private final Map<Bidder<T>, Integer> bidderIndex = new HashMap<>();
+    private final List<Constraint> bidderConstraints = new ArrayList<>();
+
+    private final List<Variable> bidVariables = new ArrayList<>();
+    private int numberOfBundleBids = 0;
+    private int[] bidderOfBundleBid = new int[INITIAL_CAPACITY];
+    private double[] valueOfBundleBid = new double[INITIAL_CAPACITY];
+    private int[] goodOffsets = new int[INITIAL_CAPACITY + 1];
+    private int[] goodIndices = new int[INITIAL_CAPACITY];
+
+    // Goods of the bundle bid being validated, cleared after every validation
+    private final BitSet goodsOfBundleBid = new BitSet();
+
+    private XORAllocation<T> result = null;
+
+    /**
+     * @param goods All goods that may appear in the ingested bids.
+     *              The position of a good in this list is its index in {@link #ingest(Bidder, double, int[])}.
+     */
+    public StreamingXORWinnerDetermination(List<T> goods) {
+        this.goods = Collections.unmodifiableList(new ArrayList<>(goods));
+        this.goodIndex = new HashMap<>();
+        for (int i = 0; i < this.goods.size(); i++) {
+            Integer previous = goodIndex.put(this.goods.get(i), i);
+            Preconditions.checkArgument(previous == null, "Good %s is listed twice", this.goods.get(i));
+        }
+        this.goodConstraints = new Constraint[this.goods.size()];
+        this.winnerDeterminationProgram = new MIP();
+        this.winnerDeterminationProgram.setObjectiveMax(true);
+    }
+
+    /**
+     * Ingests all bundle bids of the passed bids, one at a time.
+     */
+    public void ingestAll(Iterator<XORBid<T>> bids) {
+        while (bids.hasNext()) {
+            ingest(bids.next());
+        }
+    }
+
+    public void ingestAll(Iterable<XORBid<T>> bids) {
+        ingestAll(bids.iterator());
+    }
+
+    public void ingest(XORBid<T> bid) {
+        for (XORValue<T> bundleBid : bid.getValues()) {
+            ingest(bid.getBidder(), bundleBid);
+        }
+    }
+
+    public void ingest(Bidder<T> bidder, XORValue<T> bundleBid) {
+        int[] indices = new int[bundleBid.getLicenses().size()];
+        int i = 0;
+        for (T good : bundleBid.getLicenses()) {
+            Integer index = goodIndex.get(good);
+            Preconditions.checkArgument(index != null, "Good %s is not part of this winner determination", good);
+            indices[i++] = index;
+        }
+        ingest(bidder, bundleBid.value().doubleValue(), indices);
+    }
+
+    /**
+     * Ingests a single bundle bid in its primitive form, without requiring an {@link XORValue} instance.
+     *
+     * @param bidder      the bidder placing the bundle bid
+     * @param value       the value of the bundle bid
+     * @param goodIndices the indices (w.r.t. the list passed to the constructor) of the goods in the bundle
+     */
+    public void ingest(Bidder<T> bidder, double value, int[] goodIndices) {
+        ingest(bidder, value, goodIndices, goodIndices.length);
+    }
+
+    /**
+     * Same as {@link #ingest(Bidder, double, int[])}, but only considers the first <code>length</code> entries
+     * of <code>goodIndices</code>, such that readers can reuse a single buffer for all bundle bids.
+     * The indices are validated before the model is changed, such that an invalid bundle bid is not ingested at all.
+     *
+     * @throws IndexOutOfBoundsException if a good index or <code>length</code> is out of bounds
+     * @throws IllegalArgumentException  if a good index appears more than once in the bundle bid
+     */
+    public void ingest(Bidder<T> bidder, double value, int[] goodIndices, int length) {
+        validateGoodIndices(goodIndices, length);
+        int bundleBidIndex = numberOfBundleBids;
+        ensureCapacity(bundleBidIndex + 1, this.goodOffsets[bundleBidIndex] + length);
+        int bidderIdx = indexOf(bidder);
+
+        Variable bidI = new Variable("Bid " + bundleBidIndex, VarType.BOOLEAN, 0, 1);
+        winnerDeterminationProgram.add(bidI);
+        winnerDeterminationProgram.addObjectiveTerm(value, bidI);
+        bidVariables.add(bidI);
+        bidderConstraints.get(bidderIdx).addTerm(1, bidI);
+
+        int offset = this.goodOffsets[bundleBidIndex];
+        for (int k = 0; k < length; k++) {
+            int goodIdx = goodIndices[k];
+            Constraint noDoubleAssignment = goodConstraints[goodIdx];
+            if (noDoubleAssignment == null) {
+                noDoubleAssignment = new Constraint(CompareType.LEQ, 1);
+                goodConstraints[goodIdx] = noDoubleAssignment;
+                winnerDeterminationProgram.add(noDoubleAssignment);
+            }
+            noDoubleAssignment.addTerm(1.0, bidI);
+            this.goodIndices[offset++] = goodIdx;
+        }
+        bidderOfBundleBid[bundleBidIndex] = bidderIdx;
+        valueOfBundleBid[bundleBidIndex] = value;
+        this.goodOffsets[bundleBidIndex + 1] = offset;
+        numberOfBundleBids++;
+        result = null;
+    }
+
+    private void validateGoodIndices(int[] goodIndices, int length) {
+        Preconditions.checkPositionIndex(length, goodIndices.length, "length");
+        try {
+            for (int k = 0; k < length; k++) {
+                int goodIdx = goodIndices[k];
+                Preconditions.checkElementIndex(goodIdx, goods.size(), "good index");
+                Preconditions.checkArgument(!goodsOfBundleBid.get(goodIdx), "Good index %s appears twice in the bundle bid", goodIdx);
+                goodsOfBundleBid.set(goodIdx);
+            }
+        } finally {
+            goodsOfBundleBid.clear();
+        }
+    }
+
+    private int indexOf(Bidder<T> bidder) {
+        Integer index = bidderIndex.get(bidder);
+        if (index == null) {
+            index = bidders.size();
+            bidders.add(bidder);
+            bidderIndex.put(bidder, index);
+            Constraint exclusiveBids = new Constraint(CompareType.LEQ, 1);
+            bidderConstraints.add(exclusiveBids);
+            winnerDeterminationProgram.add(exclusiveBids);
+        }
+        return index;
+    }
+
+    private void ensureCapacity(int bundleBids, int totalGoodIndices) {
+        if (bundleBids > bidderOfBundleBid.length) {
+            int newCapacity = Math.max(bundleBids, bidderOfBundleBid.length * 2);
+            bidderOfBundleBid = Arrays.copyOf(bidderOfBundleBid, newCapacity);
+            valueOfBundleBid = Arrays.copyOf(valueOfBundleBid, newCapacity);
+            goodOffsets = Arrays.copyOf(goodOffsets, newCapacity + 1);
+        }
+        if (totalGoodIndices > goodIndices.length) {
+            goodIndices = Arrays.copyOf(goodIndices, Math.max(totalGoodIndices, goodIndices.length * 2));
+        }
+    }
+
+    public int getNumberOfBundleBids() {
+        return numberOfBundleBids;
+    }
+
+    public Set<Bidder<T>> getBidders() {
+        return Collections.unmodifiableSet(bidderIndex.keySet());
+    }
+
+    protected IMIP getMIP() {
+        return winnerDeterminationProgram;
+    }
+
+    @Override
+    public XORAllocation<T> calculateAllocation() {
+        if (result == null) {
+            IMIPSolver solver = new SolverClient();
+            IMIPResult mipResult = solver.solve(getMIP());
+            result = adaptMIPResult(mipResult);
+        }
+        return result;
+    }
+
+    /**
+     * Maps the solution back using the compact index. {@link XORValue}s are only created for winning bundle bids.
+     */
+    private XORAllocation<T> adaptMIPResult(IMIPResult mipResult) {
+        Map<Integer, List<Integer>> winningBundleBids = new HashMap<>();
+        for (int bundleBidIndex = 0; bundleBidIndex < numberOfBundleBids; bundleBidIndex++) {
+            if (DoubleMath.fuzzyEquals(mipResult.getValue(bidVariables.get(bundleBidIndex)), 1, 1e-3)) {
+                winningBundleBids.computeIfAbsent(bidderOfBundleBid[bundleBidIndex], k -> new ArrayList<>()).add(bundleBidIndex);
+            }
+        }
+        Map<Bidder<T>, BidderAllocation<T>> trades = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : winningBundleBids.entrySet()) {
+            double totalValue = 0;
+            Bundle<Good> allocatedGoods = new Bundle<>();
+            Set<XORValue<T>> acceptedBids = new HashSet<>();
+            for (int bundleBidIndex : entry.getValue()) {
+                XORValue<T> bundleBid = materialize(bundleBidIndex);
+                allocatedGoods.addAll(bundleBid.getLicenses());
+                acceptedBids.add(bundleBid);
+                totalValue += valueOfBundleBid[bundleBidIndex];
+            }
+            if (!allocatedGoods.isEmpty()) {
+                trades.put(bidders.get(entry.getKey()), new BidderAllocation<>(totalValue, allocatedGoods, Collections.unmodifiableSet(acceptedBids)));
+            }
+        }
+        return new XORAllocation<>(trades);
+    }
+
+    private XORValue<T> materialize(int bundleBidIndex) {
+        Bundle<T> bundle = new Bundle<>();
+        for (int i = goodOffsets[bundleBidIndex]; i < goodOffsets[bundleBidIndex + 1]; i++) {
+            bundle.add(goods.get(goodIndices[i]));
+        }
+        return new XORValue<>(bundle, BigDecimal.valueOf(valueOfBundleBid[bundleBidIndex]));
+    }
+
+}
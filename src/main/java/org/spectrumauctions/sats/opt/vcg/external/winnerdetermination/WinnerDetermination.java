@@ -6,6 +6,7 @@ import com.google.common.math.DoubleMath;
 import edu.harvard.econcs.jopt.solver.IMIP;
 import edu.harvard.econcs.jopt.solver.IMIPResult;
 import edu.harvard.econcs.jopt.solver.IMIPSolver;
+import edu.harvard.econcs.jopt.solver.SolveParam;
 import edu.harvard.econcs.jopt.solver.client.SolverClient;
 import edu.harvard.econcs.jopt.solver.mip.Variable;
 import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
@@ -39,11 +40,21 @@ public abstract class WinnerDetermination<T extends Good> implements EfficientAl
         return result;
     }
 
+    /**
+     * Allows the solver to stop as soon as the incumbent is within the passed absolute gap of the best bound.
+     * The value of the returned allocation is then a lower bound on the optimal value, which is at most
+     * <code>absoluteGap</code> higher.
+     */
+    public void setAbsoluteObjectiveGap(double absoluteGap) {
+        getMIP().setSolveParam(SolveParam.ABSOLUTE_OBJ_GAP, absoluteGap);
+        result = null;
+    }
+
     protected Auction<T> getAuction() {
         return auction;
     }
 
-    private XORAllocation<T> solveWinnerDetermination() {
+    protected XORAllocation<T> solveWinnerDetermination() {
         IMIPSolver solver = new SolverClient();
         IMIPResult mipResult = solver.solve(getMIP());
         return adaptMIPResult(mipResult);
@@ -58,7 +69,9 @@ public abstract class WinnerDetermination<T extends Good> implements EfficientAl
             Builder<Good> goodsBuilder = ImmutableSet.<Good>builder();
             Builder<XORValue<T>> bundleBids = ImmutableSet.<XORValue<T>>builder();
             for (XORValue<T> bundleBid : auction.getBid(bidder).getValues()) {
-                if (DoubleMath.fuzzyEquals(mipResult.getValue(getBidVariable(bundleBid)), 1, 1e-3)) {
+                Variable bidVariable = getBidVariable(bundleBid);
+                // Bundle bids without variable are not part of the model, e.g. if they were never generated
+                if (bidVariable != null && DoubleMath.fuzzyEquals(mipResult.getValue(bidVariable), 1, 1e-3)) {
                     goodsBuilder.addAll(bundleBid.getLicenses());
                     bundleBids.add(bundleBid);
                     totalValue += bundleBid.value().doubleValue();
@@ -1,6 +1,7 @@
 package org.spectrumauctions.sats.opt.vcg.external.winnerdetermination;
 
 import edu.harvard.econcs.jopt.solver.IMIP;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
 import edu.harvard.econcs.jopt.solver.mip.*;
 import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
 import org.spectrumauctions.sats.core.model.Bidder;
@@ -21,16 +22,25 @@ public class XORWinnerDetermination<T extends Good> extends WinnerDetermination<
 
     public XORWinnerDetermination(Auction<T> auction) {
         super(auction);
-        winnerDeterminationProgram = createWinnerDeterminationMIP(auction);
+        winnerDeterminationProgram = createWinnerDeterminationMIP(auction, VarType.BOOLEAN, bidVariables);
     }
 
-    private IMIP createWinnerDeterminationMIP(Auction<T> auction) {
+    /**
+     * Solves the LP relaxation of the winner determination, i.e., returns an upper bound on the
+     * value of the efficient allocation without solving the MIP.
+     */
+    public static <T extends Good> double solveLPRelaxation(Auction<T> auction) {
+        IMIP relaxation = createWinnerDeterminationMIP(auction, VarType.DOUBLE, new HashMap<>());
+        return new SolverClient().solve(relaxation).getObjectiveValue();
+    }
+
+    private static <T extends Good> IMIP createWinnerDeterminationMIP(Auction<T> auction, VarType varType, Map<XORValue<T>, Variable> bidVariables) {
         MIP winnerDeterminationProgram = new MIP();
         winnerDeterminationProgram.setObjectiveMax(true);
         // Add decision variables and objective terms:
         for (Bidder<T> bidder : auction.getBidders()) {
             for (XORValue<T> bundleBid : auction.getBid(bidder).getValues()) {
-                Variable bidI = new Variable("Bid " + bundleBid.getId(), VarType.BOOLEAN, 0, 1);
+                Variable bidI = new Variable("Bid " + bundleBid.getId(), varType, 0, 1);
                 winnerDeterminationProgram.add(bidI);
                 winnerDeterminationProgram.addObjectiveTerm(bundleBid.value().doubleValue(), bidI);
                 bidVariables.put(bundleBid, bidI);
@@ -0,0 +1,107 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.mip.CompareType;
+import edu.harvard.econcs.jopt.solver.mip.Constraint;
+import edu.harvard.econcs.jopt.solver.mip.MIP;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the bounds derived by {@link BoundPropagation}
+ */
+public class BoundPropagationTest {
+
+    @Test
+    public void propagatesAlongChainOfEqualities() {
+        MIP mip = new MIP();
+        Variable x = new Variable("x", VarType.INT, 0, 3);
+        Variable y = new Variable("y", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        Variable z = new Variable("z", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE);
+        mip.add(x);
+        mip.add(y);
+        mip.add(z);
+        // y = 2x, z = y + 1
+        Constraint first = new Constraint(CompareType.EQ, 0);
+        first.addTerm(1, y);
+        first.addTerm(-2, x);
+        mip.add(first);
+        Constraint second = new Constraint(CompareType.EQ, 1);
+        second.addTerm(1, z);
+        second.addTerm(-1, y);
+        mip.add(second);
+
+        Assert.assertTrue(BoundPropagation.tighten(mip) > 0);
+        Assert.assertEquals(6, y.getUpperBound(), 1e-4);
+        Assert.assertEquals(7, z.getUpperBound(), 1e-4);
+        Assert.assertEquals(1, z.getLowerBound(), 1e-4);
+        Assert.assertEquals(0, x.getLowerBound(), 0);
+        Assert.assertEquals(3, x.getUpperBound(), 0);
+    }
+
+    @Test
+    public void integerBoundsAreRounded() {
+        MIP mip = new MIP();
+        Variable x = new Variable("x", VarType.INT, 0, MIP.MAX_VALUE);
+        Variable y = new Variable("y", VarType.INT, 0, MIP.MAX_VALUE);
+        mip.add(x);
+        mip.add(y);
+        // 2x + 3y <= 10
+        Constraint c = new Constraint(CompareType.LEQ, 10);
+        c.addTerm(2, x);
+        c.addTerm(3, y);
+        mip.add(c);
+
+        BoundPropagation.tighten(mip);
+        Assert.assertEquals(5, x.getUpperBound(), 0);
+        Assert.assertEquals(3, y.getUpperBound(), 0);
+    }
+
+    @Test
+    public void unboundedTermsBlockPropagation() {
+        MIP mip = new MIP();
+        Variable x = new Variable("x", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        Variable y = new Variable("y", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        Variable z = new Variable("z", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        mip.add(x);
+        mip.add(y);
+        mip.add(z);
+        // z = x + y
+        Constraint c = new Constraint(CompareType.EQ, 0);
+        c.addTerm(1, z);
+        c.addTerm(-1, x);
+        c.addTerm(-1, y);
+        mip.add(c);
+
+        Assert.assertEquals(0, BoundPropagation.tighten(mip));
+        Assert.assertEquals(MIP.MAX_VALUE, z.getUpperBound(), 0);
+    }
+
+    @Test
+    public void boundsPiecewiseLinearOutput() {
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        cornerPoints.put(BigDecimal.ZERO, BigDecimal.ZERO);
+        cornerPoints.put(new BigDecimal(2), new BigDecimal(4));
+        cornerPoints.put(new BigDecimal(4), new BigDecimal(5));
+        ContinuousPiecewiseLinearFunction func = new ContinuousPiecewiseLinearFunction(cornerPoints);
+        Variable x = new Variable("x", VarType.DOUBLE, 0, 4);
+        Variable y = new Variable("y", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        PiecewiseLinearPartialMIP partialMip = new PiecewiseLinearPartialMIP(func, x, y, "aux",
+                PiecewiseLinearPartialMIP.OutputDirection.EXACT, PiecewiseLinearPartialMIP.Encoding.CONDITIONAL_X);
+        MIP mip = new MIP();
+        mip.add(x);
+        mip.add(y);
+        partialMip.appendToMip(mip);
+
+        BoundPropagation.tighten(mip);
+        Assert.assertTrue(y.getUpperBound() < MIP.MAX_VALUE);
+        // The bound is not necessarily tight, but valid
+        Assert.assertTrue(y.getUpperBound() >= 5 - 1e-6);
+    }
+}
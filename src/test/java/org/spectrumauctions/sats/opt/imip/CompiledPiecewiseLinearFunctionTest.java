@@ -0,0 +1,74 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares {@link CompiledPiecewiseLinearFunction} with the {@link ContinuousPiecewiseLinearFunction} it is built from
+ */
+public class CompiledPiecewiseLinearFunctionTest {
+
+    @Test
+    public void collinearBreakpointsAreMerged() {
+        CompiledPiecewiseLinearFunction compiled = CompiledPiecewiseLinearFunction.of(
+                function(0, 0, 1, 2, 2, 4, 3, 5, 4, 6, 6, 6));
+        Assert.assertEquals(3, compiled.getNumberOfPieces());
+        Assert.assertArrayEquals(new double[]{0, 2, 4, 6}, compiled.getBreakpoints(), 1e-12);
+        Assert.assertArrayEquals(new double[]{0, 4, 6, 6}, compiled.getValues(), 1e-12);
+        Assert.assertEquals(2, compiled.getSlope(0), 1e-12);
+        Assert.assertEquals(1, compiled.getSlope(1), 1e-12);
+        Assert.assertEquals(2, compiled.getIntercept(1), 1e-12);
+        Assert.assertEquals(0, compiled.getSlope(2), 1e-12);
+    }
+
+    @Test
+    public void linearFunctionHasSinglePiece() {
+        CompiledPiecewiseLinearFunction compiled = new CompiledPiecewiseLinearFunction(
+                new double[]{0, 1, 2, 3}, new double[]{1, 1.5, 2, 2.5});
+        Assert.assertTrue(compiled.isLinear());
+        Assert.assertTrue(compiled.isConcave());
+        Assert.assertTrue(compiled.isConvex());
+        Assert.assertEquals(2, compiled.getNumberOfBreakpoints());
+    }
+
+    @Test
+    public void valuesMatchOriginalFunction() {
+        ContinuousPiecewiseLinearFunction func = function(0, 0, 1, 0, 2, 3, 4, 3, 7, 9);
+        CompiledPiecewiseLinearFunction compiled = CompiledPiecewiseLinearFunction.of(func);
+        Assert.assertFalse(compiled.isConcave());
+        Assert.assertFalse(compiled.isConvex());
+        for (int i = 0; i <= 70; i++) {
+            BigDecimal x = new BigDecimal(i).movePointLeft(1);
+            Assert.assertEquals(func.getY(x).doubleValue(), compiled.getY(x.doubleValue()), 1e-9);
+        }
+        Assert.assertEquals(0, compiled.pieceAt(0));
+        Assert.assertEquals(0, compiled.pieceAt(1));
+        Assert.assertEquals(1, compiled.pieceAt(1.5));
+        Assert.assertEquals(3, compiled.pieceAt(7));
+    }
+
+    @Test
+    public void compiledOncePerFunction() {
+        ContinuousPiecewiseLinearFunction func = function(0, 0, 2, 4, 4, 5);
+        Assert.assertSame(CompiledPiecewiseLinearFunction.of(func), CompiledPiecewiseLinearFunction.of(func));
+        Assert.assertTrue(CompiledPiecewiseLinearFunction.of(func).isConcave());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outsideOfDomain() {
+        CompiledPiecewiseLinearFunction.of(function(0, 0, 2, 4)).getY(2.5);
+    }
+
+    private ContinuousPiecewiseLinearFunction function(int... coordinates) {
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            cornerPoints.put(new BigDecimal(coordinates[i]), new BigDecimal(coordinates[i + 1]));
+        }
+        return new ContinuousPiecewiseLinearFunction(cornerPoints);
+    }
+}
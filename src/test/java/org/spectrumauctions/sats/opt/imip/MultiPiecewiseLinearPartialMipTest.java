@@ -0,0 +1,104 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.IMIPResult;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
+import edu.harvard.econcs.jopt.solver.mip.MIP;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.OutputDirection;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the encoding of several functions of the same input with {@link MultiPiecewiseLinearPartialMIP}
+ */
+public class MultiPiecewiseLinearPartialMipTest {
+
+    private final Variable x = new Variable("x", VarType.DOUBLE, 0, 4);
+    private final List<Variable> y = Arrays.asList(
+            new Variable("y1", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE),
+            new Variable("y2", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE),
+            new Variable("y3", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE));
+
+    @Test
+    public void sharedPiecesOverMergedBreakpoints() {
+        List<ContinuousPiecewiseLinearFunction> funcs = Arrays.asList(
+                function(0, 0, 1, 0, 2, 3, 4, 3),
+                function(0, 0, 3, 1, 4, 4),
+                function(0, 4, 4, 0));
+        MultiPiecewiseLinearPartialMIP partialMip = new MultiPiecewiseLinearPartialMIP(
+                funcs, x, y, "aux_multi", OutputDirection.EXACT, Encoding.CONDITIONAL_X);
+        Assert.assertEquals(3, partialMip.getNumberOfSharedFunctions());
+        // Breakpoints 0, 1, 2, 3 and 4
+        Assert.assertEquals(5, partialMip.getNumberOfBreakpoints());
+        Assert.assertEquals(4, countBooleans(partialMip));
+    }
+
+    @Test
+    public void automaticEncodingSeparatesBinaryFreeFunctions() {
+        List<ContinuousPiecewiseLinearFunction> funcs = Arrays.asList(
+                function(0, 0, 2, 2, 4, 2),
+                function(0, 0, 1, 0, 2, 3, 4, 3),
+                function(0, 0, 2, 0, 3, 1, 4, 1));
+        MultiPiecewiseLinearPartialMIP partialMip = new MultiPiecewiseLinearPartialMIP(
+                funcs, x, y, "aux_multi", OutputDirection.MAXIMIZED, Encoding.AUTOMATIC);
+        Assert.assertEquals(2, partialMip.getNumberOfSharedFunctions());
+        Assert.assertEquals(5, partialMip.getNumberOfBreakpoints());
+        Assert.assertEquals(4, countBooleans(partialMip));
+
+        MultiPiecewiseLinearPartialMIP logarithmic = new MultiPiecewiseLinearPartialMIP(
+                funcs, x, y, "aux_multi", OutputDirection.MAXIMIZED, Encoding.LOGARITHMIC);
+        Assert.assertEquals(3, logarithmic.getNumberOfSharedFunctions());
+        Assert.assertEquals(2, countBooleans(logarithmic));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentDomains() {
+        new MultiPiecewiseLinearPartialMIP(Arrays.asList(function(0, 0, 4, 4), function(0, 0, 3, 3)),
+                x, y.subList(0, 2), "aux_multi", OutputDirection.EXACT, Encoding.CONDITIONAL_X);
+    }
+
+    @Test
+    public void maximizeSumOfFunctions() {
+        List<ContinuousPiecewiseLinearFunction> funcs = Arrays.asList(
+                function(0, 0, 1, 0, 2, 3, 4, 3),
+                function(0, 0, 3, 1, 4, 4),
+                function(0, 4, 4, 0));
+        for (Encoding encoding : new Encoding[]{Encoding.CONDITIONAL_X, Encoding.LAMBDA, Encoding.INCREMENTAL,
+                Encoding.LOGARITHMIC}) {
+            MultiPiecewiseLinearPartialMIP partialMip = new MultiPiecewiseLinearPartialMIP(
+                    funcs, x, y, "aux_multi", OutputDirection.EXACT, encoding);
+            MIP mip = new MIP();
+            mip.setObjectiveMax(true);
+            mip.add(x);
+            for (Variable output : y) {
+                mip.add(output);
+                mip.addObjectiveTerm(1, output);
+            }
+            partialMip.appendToMip(mip);
+            IMIPResult result = new SolverClient().solve(mip);
+            // f(4) = 3 + 4 + 0 = 7 is larger than f(2) = 3 + 2/3 + 2
+            Assert.assertEquals(encoding.name(), 7, result.getObjectiveValue(), 0.00001);
+        }
+    }
+
+    private long countBooleans(PartialMIP partialMip) {
+        return partialMip.getVariables().stream().filter(var -> var.getType() == VarType.BOOLEAN).count();
+    }
+
+    private ContinuousPiecewiseLinearFunction function(int... coordinates) {
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            cornerPoints.put(new BigDecimal(coordinates[i]), new BigDecimal(coordinates[i + 1]));
+        }
+        return new ContinuousPiecewiseLinearFunction(cornerPoints);
+    }
+}
@@ -0,0 +1,119 @@
+package org.spectrumauctions.sats.opt.imip;
+
+import edu.harvard.econcs.jopt.solver.IMIPResult;
+import edu.harvard.econcs.jopt.solver.client.SolverClient;
+import edu.harvard.econcs.jopt.solver.mip.MIP;
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import edu.harvard.econcs.jopt.solver.mip.Variable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.OutputDirection;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the {@link PiecewiseLinearEncoding} strategies
+ */
+public class PiecewiseLinearEncodingTest {
+
+    private static final Encoding[] MIXED_INTEGER_ENCODINGS =
+            {Encoding.CONDITIONAL_X, Encoding.LAMBDA, Encoding.INCREMENTAL, Encoding.LOGARITHMIC};
+
+    @Test
+    public void allEncodingsMaximizeNonConcaveFunction() {
+        for (Encoding encoding : MIXED_INTEGER_ENCODINGS) {
+            Assert.assertEquals(encoding.name(), 4, solve(encoding, 1, 0), 0.00001);
+            // The maximum of y - 2x is at x = 0, or at x = 2 for y - 0.5x
+            Assert.assertEquals(encoding.name(), 0, solve(encoding, 1, -2), 0.00001);
+            Assert.assertEquals(encoding.name(), 3, solve(encoding, 1, -0.5), 0.00001);
+        }
+    }
+
+    @Test
+    public void numberOfBooleans() {
+        for (int numberOfPieces = 1; numberOfPieces <= 9; numberOfPieces++) {
+            Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+            for (int x = 0; x <= numberOfPieces; x++) {
+                cornerPoints.put(new BigDecimal(x), new BigDecimal(x % 2));
+            }
+            ContinuousPiecewiseLinearFunction func = new ContinuousPiecewiseLinearFunction(cornerPoints);
+            Assert.assertEquals(numberOfPieces, countBooleans(func, Encoding.CONDITIONAL_X));
+            Assert.assertEquals(numberOfPieces, countBooleans(func, Encoding.LAMBDA));
+            Assert.assertEquals(numberOfPieces - 1, countBooleans(func, Encoding.INCREMENTAL));
+            Assert.assertEquals((int) Math.ceil(Math.log(numberOfPieces) / Math.log(2)),
+                    countBooleans(func, Encoding.LOGARITHMIC));
+        }
+    }
+
+    /**
+     * For every assignment of the booleans, the corner points which may have non-zero weight must belong to
+     * a single linear piece, and each piece must be selectable by its Gray code.
+     */
+    @Test
+    public void logarithmicBranchingSelectsSinglePiece() {
+        for (int numberOfPieces = 1; numberOfPieces <= 33; numberOfPieces++) {
+            int bits = LogarithmicPiecewiseLinearEncoding.numberOfBits(numberOfPieces);
+            Assert.assertTrue(1 << bits >= numberOfPieces);
+            for (int code = 0; code < 1 << bits; code++) {
+                int lowest = Integer.MAX_VALUE;
+                int highest = Integer.MIN_VALUE;
+                for (int j = 0; j <= numberOfPieces; j++) {
+                    if (allowed(numberOfPieces, bits, code, j)) {
+                        lowest = Math.min(lowest, j);
+                        highest = Math.max(highest, j);
+                    }
+                }
+                Assert.assertTrue(highest - lowest <= 1);
+            }
+            for (int piece = 0; piece < numberOfPieces; piece++) {
+                int code = LogarithmicPiecewiseLinearEncoding.grayCode(piece);
+                Assert.assertTrue(allowed(numberOfPieces, bits, code, piece));
+                Assert.assertTrue(allowed(numberOfPieces, bits, code, piece + 1));
+            }
+        }
+    }
+
+    private boolean allowed(int numberOfPieces, int bits, int code, int j) {
+        for (int bit = 0; bit < bits; bit++) {
+            boolean value = ((code >>> bit) & 1) == 1;
+            if (LogarithmicPiecewiseLinearEncoding.adjacentPiecesHaveBit(numberOfPieces, j, bit, !value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long countBooleans(ContinuousPiecewiseLinearFunction func, Encoding encoding) {
+        Variable x = new Variable("x", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        Variable y = new Variable("y", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE);
+        PiecewiseLinearPartialMIP partialMip =
+                new PiecewiseLinearPartialMIP(func, x, y, "aux_plf", OutputDirection.EXACT, encoding);
+        return partialMip.getVariables().stream().filter(var -> var.getType() == VarType.BOOLEAN).count();
+    }
+
+    private double solve(Encoding encoding, double yCoefficient, double xCoefficient) {
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        cornerPoints.put(new BigDecimal(0), new BigDecimal(0));
+        cornerPoints.put(new BigDecimal(1), new BigDecimal(1));
+        cornerPoints.put(new BigDecimal(2), new BigDecimal(4));
+        cornerPoints.put(new BigDecimal(3), new BigDecimal(3));
+        ContinuousPiecewiseLinearFunction func = new ContinuousPiecewiseLinearFunction(cornerPoints);
+        Variable x = new Variable("x", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        Variable y = new Variable("y", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE);
+        PiecewiseLinearPartialMIP partialMip =
+                new PiecewiseLinearPartialMIP(func, x, y, "aux_plf", OutputDirection.EXACT, encoding);
+        MIP mip = new MIP();
+        mip.setObjectiveMax(true);
+        mip.addObjectiveTerm(yCoefficient, y);
+        mip.addObjectiveTerm(xCoefficient, x);
+        mip.add(x);
+        mip.add(y);
+        partialMip.appendToMip(mip);
+        IMIPResult result = new SolverClient().solve(mip);
+        return result.getObjectiveValue();
+    }
+}
@@ -15,6 +15,8 @@ import org.apache.logging.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.OutputDirection;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
@@ -72,4 +74,75 @@ public class PiecewiseLinearPartialMipTest {
         logger.info("Result:\n" + result.toString());
         Assert.assertEquals(3, result.getObjectiveValue(), 0.00001);
     }
+
+    @Test
+    public void binaryFreeConcavePiecewiseLinear() {
+        ContinuousPiecewiseLinearFunction func = concaveFunction();
+        Variable x = new Variable("x", VarType.DOUBLE, 0, MIP.MAX_VALUE);
+        Variable y = new Variable("y", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE);
+        PiecewiseLinearPartialMIP mipArtifacts =
+                new PiecewiseLinearPartialMIP(func, x, y, "aux_plf_1", OutputDirection.MAXIMIZED);
+        Assert.assertEquals(Encoding.BINARY_FREE, mipArtifacts.getEncoding());
+        MIP mip = new MIP();
+        mip.setObjectiveMax(true);
+        mip.addObjectiveTerm(1, y);
+        mip.addObjectiveTerm(-0.6, x);
+        mip.add(x);
+        mip.add(y);
+        mipArtifacts.appendToMip(mip);
+        logger.info("MIP:\n" + mip.toString());
+        SolverClient solver = new SolverClient();
+        IMIPResult result = solver.solve(mip);
+        logger.info("Result:\n" + result.toString());
+        Assert.assertEquals(1.4, result.getObjectiveValue(), 0.00001);
+    }
+
+    @Test
+    public void automaticEncoding() {
+        Variable x = new Variable("x", VarType.DOUBLE, 0, 3);
+        Variable y = new Variable("y", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE);
+
+        PiecewiseLinearPartialMIP concaveMaximized =
+                new PiecewiseLinearPartialMIP(concaveFunction(), x, y, "aux_plf_1", OutputDirection.MAXIMIZED);
+        Assert.assertEquals(Encoding.BINARY_FREE, concaveMaximized.getEncoding());
+        Assert.assertTrue(concaveMaximized.getVariables().isEmpty());
+        Assert.assertEquals(2, concaveMaximized.constrainFunctionOutputVariableBinaryFree().size());
+
+        PiecewiseLinearPartialMIP concaveMinimized =
+                new PiecewiseLinearPartialMIP(concaveFunction(), x, y, "aux_plf_1", OutputDirection.MINIMIZED);
+        Assert.assertEquals(Encoding.CONDITIONAL_X, concaveMinimized.getEncoding());
+
+        PiecewiseLinearPartialMIP concaveExact = new PiecewiseLinearPartialMIP(concaveFunction(), x, y, "aux_plf_1");
+        Assert.assertEquals(Encoding.CONDITIONAL_X, concaveExact.getEncoding());
+        Assert.assertEquals(4, concaveExact.getVariables().size());
+
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        cornerPoints.put(new BigDecimal(0), new BigDecimal(0));
+        cornerPoints.put(new BigDecimal(3), new BigDecimal(3));
+        PiecewiseLinearPartialMIP linearExact = new PiecewiseLinearPartialMIP(
+                new ContinuousPiecewiseLinearFunction(cornerPoints), x, y, "aux_plf_1");
+        Assert.assertEquals(Encoding.BINARY_FREE, linearExact.getEncoding());
+        Assert.assertEquals(1, linearExact.constrainFunctionOutputVariableBinaryFree().size());
+        Assert.assertTrue(linearExact.constrainAuxiliaryVariables().isEmpty());
+
+        PiecewiseLinearPartialMIP forced = new PiecewiseLinearPartialMIP(
+                concaveFunction(), x, y, "aux_plf_1", OutputDirection.MAXIMIZED, Encoding.CONDITIONAL_X);
+        Assert.assertEquals(Encoding.CONDITIONAL_X, forced.getEncoding());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void binaryFreeNotExact() {
+        Variable x = new Variable("x", VarType.DOUBLE, 0, 3);
+        Variable y = new Variable("y", VarType.DOUBLE, -MIP.MAX_VALUE, MIP.MAX_VALUE);
+        new PiecewiseLinearPartialMIP(concaveFunction(), x, y, "aux_plf_1", OutputDirection.MINIMIZED,
+                Encoding.BINARY_FREE);
+    }
+
+    private ContinuousPiecewiseLinearFunction concaveFunction() {
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        cornerPoints.put(new BigDecimal(0), new BigDecimal(0));
+        cornerPoints.put(new BigDecimal(1), new BigDecimal(2));
+        cornerPoints.put(new BigDecimal(3), new BigDecimal(3));
+        return new ContinuousPiecewiseLinearFunction(cornerPoints);
+    }
 }
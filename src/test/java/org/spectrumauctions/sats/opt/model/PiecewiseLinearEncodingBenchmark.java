@@ -0,0 +1,84 @@
+package org.spectrumauctions.sats.opt.model;
+
+import edu.harvard.econcs.jopt.solver.mip.VarType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.model.mrvm.MRVMBidder;
+import org.spectrumauctions.sats.core.model.mrvm.MultiRegionModel;
+import org.spectrumauctions.sats.core.model.srvm.SRVMBidder;
+import org.spectrumauctions.sats.core.model.srvm.SingleRegionModel;
+import org.spectrumauctions.sats.opt.imip.PiecewiseLinearPartialMIP.Encoding;
+import org.spectrumauctions.sats.opt.model.mrvm.MRVM_MIP;
+import org.spectrumauctions.sats.opt.model.srvm.SRVM_MIP;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compares the size and solve time of the MRVM and SRVM MIPs for the different piecewise linear encodings.
+ * All encodings must find the same efficient value.
+ */
+public class PiecewiseLinearEncodingBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(PiecewiseLinearEncodingBenchmark.class);
+
+    private static final Encoding[] ENCODINGS =
+            {Encoding.AUTOMATIC, Encoding.CONDITIONAL_X, Encoding.LAMBDA, Encoding.INCREMENTAL, Encoding.LOGARITHMIC};
+
+    private static final long[] SEEDS = {1L, 2L, 3L};
+
+    @Test
+    @Ignore // Ignored for performance reasons
+    public void benchmarkMRVM() {
+        benchmark("MRVM", seed -> {
+            List<MRVMBidder> bidders = new MultiRegionModel().createNewPopulation(seed);
+            return encoding -> new MRVM_MIP(bidders, encoding);
+        });
+    }
+
+    @Test
+    @Ignore // Ignored for performance reasons
+    public void benchmarkSRVM() {
+        benchmark("SRVM", seed -> {
+            List<SRVMBidder> bidders = new SingleRegionModel().createNewPopulation(seed);
+            return encoding -> new SRVM_MIP(bidders, encoding);
+        });
+    }
+
+    private <T extends ModelMIP & EfficientAllocator<? extends GenericAllocation<?>>> void benchmark(
+            String model, Function<Long, Function<Encoding, T>> mipFactory) {
+        long[] totalMillis = new long[ENCODINGS.length];
+        for (long seed : SEEDS) {
+            Function<Encoding, T> factory = mipFactory.apply(seed);
+            Double expectedValue = null;
+            for (int e = 0; e < ENCODINGS.length; e++) {
+                long start = System.currentTimeMillis();
+                T mip = factory.apply(ENCODINGS[e]);
+                double value = mip.calculateAllocation().getTotalValue().doubleValue();
+                long millis = System.currentTimeMillis() - start;
+                totalMillis[e] += millis;
+                long booleans = mip.getMip().getVars().values().stream()
+                        .filter(var -> var.getType() != VarType.DOUBLE).count();
+                logger.info("{} seed {} {}: {} variables ({} integer), {} constraints, value {}, {} ms", model, seed,
+                        ENCODINGS[e], mip.getMip().getVars().size(), booleans, mip.getMip().getConstraints().size(),
+                        value, millis);
+                if (expectedValue == null) {
+                    expectedValue = value;
+                } else {
+                    Assert.assertEquals(expectedValue, value, Math.abs(expectedValue) * 0.002);
+                }
+            }
+        }
+        int fastest = 0;
+        for (int e = 0; e < ENCODINGS.length; e++) {
+            logger.info("{} {}: {} ms in total", model, ENCODINGS[e], totalMillis[e]);
+            if (totalMillis[e] < totalMillis[fastest]) {
+                fastest = e;
+            }
+        }
+        logger.info("Fastest encoding for {}: {}", model, ENCODINGS[fastest]);
+    }
+}
@@ -0,0 +1,191 @@
+package org.spectrumauctions.sats.opt.model.gsvm;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMLicense;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMNationalBidderSetup;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMRegionalBidderSetup;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMWorld;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMWorldSetup;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.util.random.DoubleInterval;
+import org.spectrumauctions.sats.core.util.random.IntegerInterval;
+import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
+import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation;
+
+public class GSVMAssignmentAllocatorTest {
+
+	@Test
+	public void testEfficientAllocationCustomSetup() {
+		GSVMWorldSetup.GSVMWorldSetupBuilder worldSetupBuilder = new GSVMWorldSetup.GSVMWorldSetupBuilder();
+		worldSetupBuilder.setSizeInterval(new IntegerInterval(1));
+		GSVMWorldSetup setup = worldSetupBuilder.build();
+		GSVMWorld world = new GSVMWorld(setup, new JavaUtilRNGSupplier(983742L));
+		List<GSVMBidder> population = customPopulation(world, 2, 1);
+
+		ItemAllocation<GSVMLicense> allocation = new GSVMAssignmentAllocator(world, population).calculateAllocation();
+
+		// Same efficient allocation as found by GSVMStandardMIP
+		Assert.assertEquals(91.0, allocation.getTotalValue().doubleValue(), 0.00000001);
+		testTotalValue(population, allocation);
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		GSVMWorldSetup.GSVMWorldSetupBuilder worldSetupBuilder = new GSVMWorldSetup.GSVMWorldSetupBuilder();
+		worldSetupBuilder.setSizeInterval(new IntegerInterval(2));
+		GSVMWorldSetup setup = worldSetupBuilder.build();
+		for (long seed = 1; seed <= 5; seed++) {
+			GSVMWorld world = new GSVMWorld(setup, new JavaUtilRNGSupplier(seed));
+			List<GSVMBidder> population = new GlobalSynergyValueModel().createPopulation(world,
+					new JavaUtilRNGSupplier(seed));
+			List<GSVMBidder> subPopulation = population.subList(0, 3);
+			for (boolean allowZeroBasevalue : new boolean[] { true, false }) {
+				ItemAllocation<GSVMLicense> allocation = new GSVMAssignmentAllocator(world, subPopulation,
+						allowZeroBasevalue).calculateAllocation();
+				double bruteForce = bruteForce(world, subPopulation, allowZeroBasevalue);
+				Assert.assertEquals(bruteForce, allocation.getTotalValue().doubleValue(), 0.000001);
+				testTotalValue(subPopulation, allocation);
+			}
+		}
+	}
+
+	@Test
+	public void testDeterministicUnderParallelism() {
+		GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+		GSVMWorld world = model.createWorld(new JavaUtilRNGSupplier(4L));
+		List<GSVMBidder> population = model.createPopulation(world, new JavaUtilRNGSupplier(4L));
+
+		ItemAllocation<GSVMLicense> sequential = new GSVMAssignmentAllocator(world, population, true,
+				new ForkJoinPool(1)).calculateAllocation();
+		ItemAllocation<GSVMLicense> parallel = new GSVMAssignmentAllocator(world, population, true,
+				new ForkJoinPool(4)).calculateAllocation();
+
+		Assert.assertEquals(0, sequential.getTotalValue().compareTo(parallel.getTotalValue()));
+		for (GSVMBidder bidder : population) {
+			Assert.assertEquals(sequential.getAllocation(bidder), parallel.getAllocation(bidder));
+		}
+		testTotalValue(population, parallel);
+	}
+
+	@Test
+	public void testHungarianAlgorithmAgainstBruteForce() {
+		Random random = new Random(42);
+		for (int run = 0; run < 50; run++) {
+			int rows = 1 + random.nextInt(4);
+			int columns = rows + random.nextInt(3);
+			double[][] cost = new double[rows][columns];
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					cost[row][column] = random.nextInt(20) - 10;
+				}
+			}
+			int[] assignment = HungarianAlgorithm.solve(cost);
+			double total = 0;
+			boolean[] used = new boolean[columns];
+			for (int row = 0; row < rows; row++) {
+				Assert.assertFalse(used[assignment[row]]);
+				used[assignment[row]] = true;
+				total += cost[row][assignment[row]];
+			}
+			Assert.assertEquals(minimalCost(cost, 0, new boolean[columns]), total, 0.00000001);
+		}
+	}
+
+	private double minimalCost(double[][] cost, int row, boolean[] used) {
+		if (row == cost.length) {
+			return 0;
+		}
+		double best = Double.POSITIVE_INFINITY;
+		for (int column = 0; column < used.length; column++) {
+			if (!used[column]) {
+				used[column] = true;
+				best = Math.min(best, cost[row][column] + minimalCost(cost, row + 1, used));
+				used[column] = false;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Enumerates all assignments of licenses to agents (or to no agent)
+	 */
+	private double bruteForce(GSVMWorld world, List<GSVMBidder> population, boolean allowZeroBasevalue) {
+		List<GSVMLicense> licenses = new ArrayList<>(world.getLicenses());
+		int[] agentOfLicense = new int[licenses.size()];
+		double best = 0;
+		int options = population.size() + 1;
+		long combinations = (long) Math.pow(options, licenses.size());
+		for (long code = 0; code < combinations; code++) {
+			long rest = code;
+			for (int j = 0; j < licenses.size(); j++) {
+				agentOfLicense[j] = (int) (rest % options) - 1;
+				rest /= options;
+			}
+			double total = 0;
+			boolean feasible = true;
+			for (int i = 0; i < population.size() && feasible; i++) {
+				Bundle<GSVMLicense> bundle = new Bundle<>();
+				for (int j = 0; j < licenses.size(); j++) {
+					if (agentOfLicense[j] == i) {
+						BigDecimal baseValue = population.get(i).getBaseValues().get(licenses.get(j).getId());
+						if (!allowZeroBasevalue && (baseValue == null || baseValue.signum() <= 0)) {
+							feasible = false;
+						}
+						bundle.add(licenses.get(j));
+					}
+				}
+				total += population.get(i).calculateValue(bundle).doubleValue();
+			}
+			if (feasible) {
+				best = Math.max(best, total);
+			}
+		}
+		return best;
+	}
+
+	private void testTotalValue(List<GSVMBidder> population, ItemAllocation<GSVMLicense> allocation) {
+		BigDecimal totalValue = new BigDecimal(0);
+
+		for (GSVMBidder bidder : population) {
+			Bundle<GSVMLicense> bundle = allocation.getAllocation(bidder);
+			totalValue = totalValue.add(bidder.calculateValue(bundle));
+		}
+
+		double delta = 0.00000001;
+		Assert.assertEquals(allocation.getTotalValue().doubleValue(), totalValue.doubleValue(), delta);
+	}
+
+	private List<GSVMBidder> customPopulation(GSVMWorld world, int numberOfRegionalBidders,
+			int numberOfNationalBidders) {
+
+		GSVMRegionalBidderSetup.Builder regionalBidderBuilder = new GSVMRegionalBidderSetup.Builder();
+		regionalBidderBuilder.setRegionalValueInterval(new DoubleInterval(15));
+		regionalBidderBuilder.setLowNationalValueInterval(new DoubleInterval(25));
+		regionalBidderBuilder.setHighNationalValueInterval(new DoubleInterval(35));
+		regionalBidderBuilder.setNumberOfBidders(numberOfRegionalBidders);
+		regionalBidderBuilder.setSetupName("Test Regional Bidder");
+
+		GSVMNationalBidderSetup.Builder nationalBidderBuilder = new GSVMNationalBidderSetup.Builder();
+		nationalBidderBuilder.setNumberOfBidders(numberOfNationalBidders);
+		nationalBidderBuilder.setLowNationalValueInterval(new DoubleInterval(16));
+		nationalBidderBuilder.setHighNationalValueInterval(new DoubleInterval(26));
+		nationalBidderBuilder.setSetupName("Test National Bidder");
+
+		Collection<GSVMRegionalBidderSetup> regionalSetups = new ArrayList<>();
+		regionalSetups.add(regionalBidderBuilder.build());
+		Collection<GSVMNationalBidderSetup> nationalSetups = new ArrayList<>();
+		nationalSetups.add(nationalBidderBuilder.build());
+
+		return world.createPopulation(regionalSetups, nationalSetups, new JavaUtilRNGSupplier(983742L));
+	}
+}
@@ -65,6 +65,57 @@ public class GSVMStandardMIPTest {
 		testTotalValue(population, allocation);
 	}
 
+	@Test
+	public void testCalculateAllocationBuildsTheModel() {
+		GSVMWorldSetup.GSVMWorldSetupBuilder worldSetupBuilder = new GSVMWorldSetup.GSVMWorldSetupBuilder();
+		worldSetupBuilder.setSizeInterval(new IntegerInterval(1));
+		GSVMWorldSetup setup = worldSetupBuilder.build();
+		GSVMWorld world = new GSVMWorld(setup, new JavaUtilRNGSupplier(983742L));
+		List<GSVMBidder> population = customPopulation(world, 2, 1);
+
+		GSVMStandardMIP gsvmMIP = new GSVMStandardMIP(world, population);
+		ItemAllocation<GSVMLicense> allocation = gsvmMIP.calculateAllocation();
+
+		Assert.assertEquals(0, BigDecimal.valueOf(91.0).compareTo(allocation.getTotalValue()));
+		testTotalValue(population, allocation);
+	}
+
+	@Test
+	public void testDuplicateAgentIsReported() {
+		GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+		GSVMWorld world = model.createWorld(983742L);
+		List<GSVMBidder> population = new ArrayList<>(model.createPopulation(world, 983742L));
+		GSVMBidder duplicate = population.get(0);
+		population.add(duplicate);
+
+		try {
+			new GSVMStandardMIP(world, population);
+			Assert.fail("Expected an IllegalStateException");
+		} catch (IllegalStateException e) {
+			// Same message as raised by the reducer before the population was indexed by id
+			Assert.assertEquals("Error: Multiple values for agent: " + duplicate.getId() + " and license: 0 in population",
+					e.getMessage());
+		}
+	}
+
+	@Test
+	public void testEfficientAllocationCustomSetupCompactFormulation() {
+		GSVMWorldSetup.GSVMWorldSetupBuilder worldSetupBuilder = new GSVMWorldSetup.GSVMWorldSetupBuilder();
+		worldSetupBuilder.setSizeInterval(new IntegerInterval(1));
+		GSVMWorldSetup setup = worldSetupBuilder.build();
+		GSVMWorld world = new GSVMWorld(setup, new JavaUtilRNGSupplier(983742L));
+		List<GSVMBidder> population = customPopulation(world, 2, 1);
+
+		GSVMStandardMIP gsvmMIP = new GSVMStandardMIP(world, population);
+		gsvmMIP.setFormulation(GSVMStandardMIP.Formulation.COMPACT);
+		gsvmMIP.build();
+		ItemAllocation<GSVMLicense> allocation = gsvmMIP.calculateAllocation();
+
+		// Same efficient allocation as with the standard formulation
+		Assert.assertEquals(0, BigDecimal.valueOf(91.0).compareTo(allocation.getTotalValue()));
+		testTotalValue(population, allocation);
+	}
+
 	@Test
 	public void testEfficientAllocationWhenAllowingToAssignLicensesToAgentsWithZeroBasevalue() {
 		GSVMWorldSetup.GSVMWorldSetupBuilder worldSetupBuilder = new GSVMWorldSetup.GSVMWorldSetupBuilder();
@@ -114,6 +165,33 @@ public class GSVMStandardMIPTest {
 		testTotalValue(population, allocation);
 	}
 
+	@Test
+	public void testPresolveWhenAllowingToAssignLicensesToAgentsWithZeroBasevalue() {
+		GSVMWorldSetup.GSVMWorldSetupBuilder worldSetupBuilder = new GSVMWorldSetup.GSVMWorldSetupBuilder();
+		worldSetupBuilder.setSizeInterval(new IntegerInterval(6));
+		GSVMWorldSetup setup = worldSetupBuilder.build();
+		GSVMWorld world = new GSVMWorld(setup, new JavaUtilRNGSupplier(983742L));
+		List<GSVMBidder> population = buildSpecialPopulation(world);
+
+		GSVMStandardMIP prunedMIP = new GSVMStandardMIP(world, population, false);
+		prunedMIP.build();
+		ItemAllocation<GSVMLicense> prunedAllocation = prunedMIP.calculateAllocation();
+
+		GSVMStandardMIP presolvedMIP = new GSVMStandardMIP(world, population, true);
+		presolvedMIP.setPresolve(true);
+		presolvedMIP.build();
+		ItemAllocation<GSVMLicense> presolvedAllocation = presolvedMIP.calculateAllocation();
+
+		// Assigning the remaining licenses afterwards never lowers welfare, and all licenses are allocated
+		Assert.assertTrue(presolvedAllocation.getTotalValue().compareTo(prunedAllocation.getTotalValue()) >= 0);
+		int allocatedLicenses = 0;
+		for (GSVMBidder bidder : population) {
+			allocatedLicenses += presolvedAllocation.getAllocation(bidder).size();
+		}
+		Assert.assertEquals(world.getLicenses().size(), allocatedLicenses);
+		testTotalValue(population, presolvedAllocation);
+	}
+
 	private void testTotalValue(List<GSVMBidder> population, ItemAllocation<GSVMLicense> allocation) {
 		BigDecimal totalValue = new BigDecimal(0);
 
@@ -0,0 +1,71 @@
+package org.spectrumauctions.sats.opt.model.lsvm;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMBidder;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMLicense;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMWorld;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMWorldSetup;
+import org.spectrumauctions.sats.core.model.lsvm.LocalSynergyValueModel;
+import org.spectrumauctions.sats.core.util.random.IntegerInterval;
+import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
+import org.spectrumauctions.sats.opt.vcg.external.vcg.ItemAllocation;
+
+/**
+ * Compares the LSVMLazyConnectivityMIP with the known efficient allocation values of the LSVMStandardMIP
+ */
+public class LSVMLazyConnectivityMIPTest {
+
+	private Map<Long, Double> seedMap;
+
+	@Before
+	public void setup() {
+		seedMap = LSVMStandardMIPTestData.getTestData();
+	}
+
+	@Test
+	public void testDefaultSetupEasySeed() {
+		long seed = 1498246131808L;
+		LocalSynergyValueModel model = new LocalSynergyValueModel();
+		LSVMWorld world = model.createWorld(seed);
+		List<LSVMBidder> population = model.createPopulation(world, seed);
+
+		LSVMLazyConnectivityMIP lazyMIP = new LSVMLazyConnectivityMIP(world, population);
+		ItemAllocation<LSVMLicense> allocation = lazyMIP.calculateAllocation();
+
+		Assert.assertEquals("Error Objective Value not matching Test Data Seed: " + seed, seedMap.get(seed),
+				allocation.getTotalValue().doubleValue(), 0.0000001);
+		testTotalValue(population, allocation);
+	}
+
+	@Test
+	public void testCustomSetupMatchesStandardMIP() {
+		LSVMWorldSetup.LSVMWorldSetupBuilder worldSetupBuilder = new LSVMWorldSetup.LSVMWorldSetupBuilder();
+		worldSetupBuilder.setNumberOfColumnsInterval(new IntegerInterval(4));
+		worldSetupBuilder.setNumberOfRowsInterval(new IntegerInterval(3));
+		LSVMWorld world = new LSVMWorld(worldSetupBuilder.build(), new JavaUtilRNGSupplier(983742L));
+		List<LSVMBidder> population = new LocalSynergyValueModel().createPopulation(world, 983742L);
+
+		ItemAllocation<LSVMLicense> expected = new LSVMStandardMIP(world, population).calculateAllocation();
+		LSVMLazyConnectivityMIP lazyMIP = new LSVMLazyConnectivityMIP(world, population);
+		ItemAllocation<LSVMLicense> allocation = lazyMIP.calculateAllocation();
+
+		Assert.assertEquals(expected.getTotalValue().doubleValue(), allocation.getTotalValue().doubleValue(),
+				0.0000001);
+		Assert.assertTrue(lazyMIP.getNumberOfIterations() >= 1);
+		testTotalValue(population, allocation);
+	}
+
+	private void testTotalValue(List<LSVMBidder> population, ItemAllocation<LSVMLicense> allocation) {
+		BigDecimal totalValue = BigDecimal.ZERO;
+		for (LSVMBidder bidder : population) {
+			totalValue = totalValue.add(bidder.calculateValue(allocation.getAllocation(bidder)));
+		}
+		Assert.assertEquals(allocation.getTotalValue().doubleValue(), totalValue.doubleValue(), 0.0000001);
+	}
+}
@@ -47,6 +47,16 @@ public class LSVMStandardMIPTest {
 		testDefaultSetup(1498247338147L);
 	}
 
+	@Test
+	public void testDefaultSetupEasySeedFlowFormulation() {
+		testDefaultSetup(1498246131808L, LSVMStandardMIP.ConnectivityFormulation.FLOW);
+	}
+
+	@Test
+	public void testDefaultSetupMediumSeedFlowFormulation() {
+		testDefaultSetup(1498247338147L, LSVMStandardMIP.ConnectivityFormulation.FLOW);
+	}
+
 	// @Test -> Uncomment to test the hard seed
 	public void testDefaultSetupHardSeed() {
 		// hardest known seed -> reference runtime approx 15 minutes
@@ -68,12 +78,36 @@ public class LSVMStandardMIPTest {
 		testTotalValue(population, allocation);
 	}
 
+	@Test
+	public void testOnlyValuedLicenses() {
+		long seed = 1498246131808L;
+		LocalSynergyValueModel model = new LocalSynergyValueModel();
+		LSVMWorld world = model.createWorld(seed);
+		List<LSVMBidder> population = model.createPopulation(world, seed);
+
+		LSVMStandardMIP lsvmMIP = new LSVMStandardMIP(world, population, false);
+		ItemAllocation<LSVMLicense> allocation = lsvmMIP.calculateAllocation();
+
+		for (LSVMBidder bidder : population) {
+			for (LSVMLicense license : allocation.getAllocation(bidder)) {
+				Assert.assertTrue(bidder.getBaseValues().containsKey(license.getId()));
+			}
+		}
+		// Restricting the agents to their valued licenses can only lower the efficient value
+		Assert.assertTrue(allocation.getTotalValue().doubleValue() <= seedMap.get(seed) + 0.0000001);
+		testTotalValue(population, allocation);
+	}
+
 	private void testDefaultSetup(Long seed) {
+		testDefaultSetup(seed, LSVMStandardMIP.ConnectivityFormulation.PATH_LENGTH);
+	}
+
+	private void testDefaultSetup(Long seed, LSVMStandardMIP.ConnectivityFormulation formulation) {
 		LocalSynergyValueModel model = new LocalSynergyValueModel();
 		LSVMWorld world = model.createWorld(seed);
 		List<LSVMBidder> population = model.createPopulation(world, seed);
 
-		LSVMStandardMIP lsvmMIP = new LSVMStandardMIP(world, population);
+		LSVMStandardMIP lsvmMIP = new LSVMStandardMIP(world, population, true, formulation);
 		ItemAllocation<LSVMLicense> allocation = lsvmMIP.calculateAllocation();
 
 		Assert.assertEquals("Error Objective Value not matching Test Data Seed: " + seed, seedMap.get(seed),
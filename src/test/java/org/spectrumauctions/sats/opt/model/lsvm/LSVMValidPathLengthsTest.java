@@ -0,0 +1,92 @@
+package org.spectrumauctions.sats.opt.model.lsvm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.model.cats.graphalgorithms.Vertex;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMLicense;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMWorld;
+import org.spectrumauctions.sats.core.model.lsvm.LSVMWorldSetup;
+import org.spectrumauctions.sats.core.util.random.IntegerInterval;
+import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
+
+/**
+ * Compares the valid path lengths with the enumeration of all paths in the {@link LSVMGridGraph}
+ */
+public class LSVMValidPathLengthsTest {
+
+	@Test
+	public void testMatchesAllPathEnumeration() {
+		testMatchesAllPathEnumeration(1, 4);
+		testMatchesAllPathEnumeration(2, 3);
+		testMatchesAllPathEnumeration(3, 3);
+		testMatchesAllPathEnumeration(3, 4);
+	}
+
+	@Test
+	public void testDiskCache() throws IOException {
+		Path directory = Files.createTempDirectory("lsvm-path-lengths");
+		try {
+			LSVMValidPathLengths.setDiskCacheDirectory(directory);
+			LSVMValidPathLengths computed = LSVMValidPathLengths.of(2, 5);
+			Path file = directory.resolve("lsvm-valid-path-lengths-2x5.bin");
+			Assert.assertTrue(Files.exists(file));
+			Assert.assertSame(computed, LSVMValidPathLengths.of(2, 5));
+			for (int x = 0; x < 10; x++) {
+				for (int y = x + 1; y < 10; y++) {
+					Assert.assertEquals(LSVMValidPathLengths.compute(2, 5).getValidLengths(x, y),
+							computed.getValidLengths(x, y));
+				}
+			}
+			Files.delete(file);
+		} finally {
+			LSVMValidPathLengths.setDiskCacheDirectory(null);
+			Files.delete(directory);
+		}
+	}
+
+	private void testMatchesAllPathEnumeration(int rows, int columns) {
+		LSVMWorldSetup.LSVMWorldSetupBuilder worldSetupBuilder = new LSVMWorldSetup.LSVMWorldSetupBuilder();
+		worldSetupBuilder.setNumberOfRowsInterval(new IntegerInterval(rows));
+		worldSetupBuilder.setNumberOfColumnsInterval(new IntegerInterval(columns));
+		LSVMWorld world = new LSVMWorld(worldSetupBuilder.build(), new JavaUtilRNGSupplier(983742L));
+		List<LSVMLicense> licenses = new ArrayList<>(world.getLicenses());
+		licenses.sort((l1, l2) -> Long.compare(l1.getId(), l2.getId()));
+
+		LSVMValidPathLengths validPathLengths = LSVMValidPathLengths.compute(rows, columns);
+		for (int x = 0; x < licenses.size(); x++) {
+			for (int y = x + 1; y < licenses.size(); y++) {
+				Set<Integer> expected = enumerateValidPathLengths(world, licenses.get(x), licenses.get(y));
+				Assert.assertEquals("Valid path lengths of " + x + " and " + y + " in a " + rows + "x" + columns
+						+ " grid", expected, validPathLengths.getValidLengths(x, y));
+				for (int c = 0; c <= licenses.size(); c++) {
+					Assert.assertEquals(expected.contains(c), validPathLengths.isValid(y, x, c));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The lengths of all inclusion-minimal paths between two licenses
+	 */
+	private Set<Integer> enumerateValidPathLengths(LSVMWorld world, LSVMLicense l1, LSVMLicense l2) {
+		LSVMGridGraph grid = new LSVMGridGraph(world.getGrid());
+		Set<Set<Vertex>> allPaths = grid.findAllPaths(grid.getVertex(l1), grid.getVertex(l2));
+		List<Set<Vertex>> sizeOrderedPaths = allPaths.stream()
+				.sorted((a1, a2) -> Integer.compare(a1.size(), a2.size())).collect(Collectors.toList());
+		List<Set<Vertex>> solution = new ArrayList<>();
+		for (Set<Vertex> current : sizeOrderedPaths) {
+			if (solution.stream().noneMatch(current::containsAll)) {
+				solution.add(current);
+			}
+		}
+		return solution.stream().map(path -> path.size() - 1).collect(Collectors.toSet());
+	}
+}
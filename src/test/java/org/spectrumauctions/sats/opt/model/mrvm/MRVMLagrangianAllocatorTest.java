@@ -0,0 +1,76 @@
+package org.spectrumauctions.sats.opt.model.mrvm;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.bidlang.generic.GenericValue;
+import org.spectrumauctions.sats.core.model.mrvm.*;
+import org.spectrumauctions.sats.core.model.mrvm.MRVMRegionsMap.Region;
+
+import java.util.List;
+
+/**
+ * Compares the bounds of the {@link MRVMLagrangianAllocator} with the efficient value of the {@link MRVM_MIP}
+ */
+public class MRVMLagrangianAllocatorTest {
+
+    @Test
+    public void boundsContainEfficientValueOfSmallPopulation() {
+        MultiRegionModel model = new MultiRegionModel();
+        model.setNumberOfNationalBidders(0);
+        model.setNumberOfRegionalBidders(1);
+        model.setNumberOfLocalBidders(2);
+        MRVMWorld world = model.createWorld(351235L);
+        List<MRVMBidder> bidders = model.createPopulation(world, 351235L);
+        assertBoundsAndFeasibility(world, bidders, 5);
+    }
+
+    @Test
+    @Ignore // Ignored for performance reasons
+    public void boundsContainEfficientValue() {
+        MultiRegionModel model = new MultiRegionModel();
+        MRVMWorld world = model.createWorld(351235L);
+        List<MRVMBidder> bidders = model.createPopulation(world, 351235L);
+        assertBoundsAndFeasibility(world, bidders, 20);
+    }
+
+    private void assertBoundsAndFeasibility(MRVMWorld world, List<MRVMBidder> bidders, int maxIterations) {
+        double efficientValue = unscaledTotalValue(bidders, new MRVM_MIP(bidders).calculateAllocation());
+
+        MRVMLagrangianAllocator allocator = new MRVMLagrangianAllocator(bidders);
+        allocator.setMaxIterations(maxIterations);
+        MRVMMipResult result = allocator.calculateAllocation();
+
+        Assert.assertTrue(allocator.getNumberOfIterations() >= 1);
+        Assert.assertTrue(allocator.getNumberOfIterations() <= maxIterations);
+        Assert.assertEquals(allocator.getLowerBound(), unscaledTotalValue(bidders, result), 1e-6);
+        // Like in MRVM_MIP, the total value of the result is scaled
+        Assert.assertEquals(allocator.getLowerBound() / Scalor.scalingFactor(bidders),
+                result.getTotalValue().doubleValue(), 1e-6);
+        // The efficient value is only approximated by MRVM_MIP, with a relative gap of 0.001
+        Assert.assertTrue(allocator.getLowerBound() <= efficientValue * 1.001);
+        Assert.assertTrue(allocator.getUpperBound() >= efficientValue * 0.999);
+        assertFeasible(world, bidders, result);
+    }
+
+    private double unscaledTotalValue(List<MRVMBidder> bidders, MRVMMipResult result) {
+        double total = 0;
+        for (MRVMBidder bidder : bidders) {
+            total += result.getAllocation(bidder).getValue().doubleValue();
+        }
+        return total;
+    }
+
+    private void assertFeasible(MRVMWorld world, List<MRVMBidder> bidders, MRVMMipResult result) {
+        for (Region region : world.getRegionsMap().getRegions()) {
+            for (MRVMBand band : world.getBands()) {
+                int allocated = 0;
+                for (MRVMBidder bidder : bidders) {
+                    GenericValue<MRVMGenericDefinition> value = result.getAllocation(bidder);
+                    allocated += value.getQuantity(new MRVMGenericDefinition(band, region));
+                }
+                Assert.assertTrue(allocated <= band.getNumberOfLots());
+            }
+        }
+    }
+}
@@ -209,10 +209,10 @@ public class SRVMBidderPartialMIPTest {
             addConstraints(mip, bidderPartialMIP.generateValueConstraints(), true);
             addPartialMipConstraints(mip, bidderPartialMIP.generatePiecewiseLinearFunctionConstraints(), true);
 
-            // Fix values for v_i_b
+            // Fix values for v_i_b, within the upper bound of v_i_b
             int count = 0;
             for (SRVMBand band : bidder.getWorld().getBands()) {
-                Constraint c = new Constraint(CompareType.EQ, bidder.getId() * 100 + count++);
+                Constraint c = new Constraint(CompareType.EQ, fixedValue(bidderPartialMIP, band, count++));
                 c.addTerm(1, bidderPartialMIP.getValueVariable(band));
                 mip.add(c);
             }
@@ -230,7 +230,7 @@ public class SRVMBidderPartialMIPTest {
             Variable wVar = partialMip.getValue().getwVariable();
             int count = 0;
             for (SRVMBand band : bidder.getWorld().getBands()) {
-                double expected = bidder.getId() * 100 + count;
+                double expected = fixedValue(partialMip.getValue(), band, count);
                 Variable vmVar = worldPartialMip.getVmVariable(bidder, band);
                 Variable voVar = worldPartialMip.getVoVariable(bidder, band);
                 double vmResult = result.getValue(vmVar);
@@ -252,6 +252,14 @@ public class SRVMBidderPartialMIPTest {
         Assert.assertFalse(noAssertions);
     }
 
+    /**
+     * A distinct fraction of the maximal value of the band for each band of a bidder
+     */
+    private double fixedValue(SRVMBidderPartialMIP bidderPartialMIP, SRVMBand band, int count) {
+        int numberOfBands = band.getWorld().getBands().size();
+        return bidderPartialMIP.maximalValue(band) * (count + 1) / (numberOfBands + 1);
+    }
+
     private void testValueConstraintsSetup(Map<SRVMBidder, SRVMBidderPartialMIP> bidderPartialMips) {
         SRVMWorldPartialMip worldPartialMip = bidderPartialMips.values().stream().findFirst().get().worldPartialMip;
         MIP mip = new MIP();
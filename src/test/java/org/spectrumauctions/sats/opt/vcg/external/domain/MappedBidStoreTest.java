@@ -0,0 +1,108 @@
+package org.spectrumauctions.sats.opt.vcg.external.domain;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.bidlang.xor.XORBid;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.opt.vcg.external.MockWorld;
+import org.spectrumauctions.sats.opt.vcg.external.MockWorld.MockGood;
+import org.spectrumauctions.sats.opt.vcg.external.winnerdetermination.StreamingXORWinnerDetermination;
+import org.spectrumauctions.sats.opt.vcg.external.winnerdetermination.XORWinnerDetermination;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedBidStoreTest {
+
+    private List<MockGood> goods;
+    private Bidder<MockGood> bidder0;
+    private Bidder<MockGood> bidder1;
+
+    @Before
+    public void setUp() {
+        MockWorld.getInstance().reset();
+        goods = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            goods.add(MockWorld.getInstance().createNewGood());
+        }
+        bidder0 = MockWorld.getInstance().createNewBidder();
+        bidder1 = MockWorld.getInstance().createNewBidder();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Bids<MockGood> bids = new Bids<>();
+        bids.addBid(new XORBid.Builder<>(bidder0, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(goods.get(0), goods.get(3), goods.get(199)), new BigDecimal("12.5")),
+                new XORValue<>(new Bundle<>(goods.get(150)), new BigDecimal("3.25")))).build());
+        bids.addBid(new XORBid.Builder<>(bidder1, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(goods.get(1), goods.get(128)), new BigDecimal("7")))).build());
+
+        Path file = Files.createTempFile("bids", ".bin");
+        try {
+            MappedBidStore.write(file, goods, bids);
+            try (MappedBidStore<MockGood> store = MappedBidStore.open(file, goods, Lists.newArrayList(bidder0, bidder1))) {
+                assertEquals(3, store.getNumberOfBundleBids());
+                Bids<MockGood> restored = store.readBids();
+                assertEquals(bids.getBidders(), restored.getBidders());
+                for (Bidder<MockGood> bidder : bids.getBidders()) {
+                    assertEquals(asMap(bids.getBid(bidder)), asMap(restored.getBid(bidder)));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWinnerDeterminationEqualsInMemoryWinnerDetermination() throws IOException {
+        Bidder<MockGood> bidder2 = MockWorld.getInstance().createNewBidder();
+        Bids<MockGood> bids = new Bids<>();
+        bids.addBid(new XORBid.Builder<>(bidder0, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(goods.get(0), goods.get(1)), new BigDecimal("1633.62")),
+                new XORValue<>(new Bundle<>(goods.get(2)), new BigDecimal("997.064")))).build());
+        bids.addBid(new XORBid.Builder<>(bidder1, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(goods.get(0), goods.get(199)), new BigDecimal("1779.42")),
+                new XORValue<>(new Bundle<>(goods.get(3)), new BigDecimal("894.644")))).build());
+        bids.addBid(new XORBid.Builder<>(bidder2, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(goods.get(1), goods.get(2)), new BigDecimal("1751.26")),
+                new XORValue<>(new Bundle<>(goods.get(2), goods.get(3)), new BigDecimal("1795.51")))).build());
+
+        Auction<MockGood> auction = new Auction<>(bids, new HashSet<>(goods));
+        XORAllocation<MockGood> expected = new XORWinnerDetermination<>(auction).calculateAllocation();
+
+        Path file = Files.createTempFile("bids", ".bin");
+        try {
+            MappedBidStore.write(file, goods, bids);
+            try (MappedBidStore<MockGood> store = MappedBidStore.open(file, goods, Lists.newArrayList(bidder0, bidder1, bidder2))) {
+                StreamingXORWinnerDetermination<MockGood> winnerDetermination = store.createWinnerDetermination();
+                assertEquals(6, winnerDetermination.getNumberOfBundleBids());
+                XORAllocation<MockGood> result = winnerDetermination.calculateAllocation();
+
+                assertEquals(expected.getTotalAllocationValue(), result.getTotalAllocationValue(), 1e-6);
+                for (Bidder<MockGood> bidder : bids.getBidders()) {
+                    assertEquals(expected.getAllocation(bidder).getGoods(), result.getAllocation(bidder).getGoods());
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Map<Bundle<MockGood>, Double> asMap(XORBid<MockGood> bid) {
+        Map<Bundle<MockGood>, Double> result = new HashMap<>();
+        for (XORValue<MockGood> value : bid.getValues()) {
+            result.put(value.getLicenses(), value.value().doubleValue());
+        }
+        return result;
+    }
+}
@@ -10,6 +10,7 @@ import org.spectrumauctions.sats.core.model.Bundle;
 import org.spectrumauctions.sats.opt.vcg.external.MockWorld;
 import org.spectrumauctions.sats.opt.vcg.external.MockWorld.MockGood;
 import org.spectrumauctions.sats.opt.vcg.external.domain.Auction;
+import org.spectrumauctions.sats.opt.vcg.external.domain.BidderPayment;
 import org.spectrumauctions.sats.opt.vcg.external.domain.Bids;
 import org.spectrumauctions.sats.opt.vcg.external.domain.Payment;
 import org.spectrumauctions.sats.opt.vcg.external.domain.mechanisms.AuctionMechanism;
@@ -19,6 +20,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class VCGTest {
 
@@ -73,4 +75,51 @@ public class VCGTest {
         assertEquals(payment.paymentOf(bidder(4)).getAmount(), 0, 0.00001);
     }
 
+    @Test
+    public void testCorePayments() {
+        XORValue<MockWorld.MockGood> bid1 = new XORValue<>(new Bundle<>(A), new BigDecimal(2));
+        XORValue<MockWorld.MockGood> bid2 = new XORValue<>(new Bundle<>(B), new BigDecimal(2));
+        XORValue<MockWorld.MockGood> bid3 = new XORValue<>(new Bundle<>(A, B), new BigDecimal(2));
+
+        Bids<MockWorld.MockGood> bids = new Bids<>();
+        bids.addBid(new XORBid.Builder<>(bidder(1), Sets.newHashSet(bid1)).build());
+        bids.addBid(new XORBid.Builder<>(bidder(2), Sets.newHashSet(bid2)).build());
+        bids.addBid(new XORBid.Builder<>(bidder(3), Sets.newHashSet(bid3)).build());
+
+        Auction<MockGood> auction = new Auction<>(bids, Sets.newHashSet(A, B));
+        AuctionMechanism vcg = new XORVCGAuction<>(auction);
+        assertEquals(0, vcg.getPayment().getTotalPayments(), 0.00001);
+
+        CorePaymentAuction<MockGood> core = new CorePaymentAuction<>(auction);
+        Payment<MockGood> payment = core.getPayment();
+        assertEquals(4, core.getAuctionResult().getAllocation().getTotalAllocationValue(), 0.0001);
+        assertEquals(2, payment.getTotalPayments(), 0.00001);
+        assertEquals(0, payment.paymentOf(bidder(3)).getAmount(), 0.00001);
+    }
+
+    @Test
+    public void testVCGWithPaymentTolerance() {
+        XORValue<MockWorld.MockGood> bid1 = new XORValue<>(new Bundle<>(A), new BigDecimal(2));
+        XORValue<MockWorld.MockGood> bid2 = new XORValue<>(new Bundle<>(A, B, D), new BigDecimal(3));
+        XORValue<MockWorld.MockGood> bid3 = new XORValue<>(new Bundle<>(B, C), new BigDecimal(2));
+        XORValue<MockWorld.MockGood> bid4 = new XORValue<>(new Bundle<>(C, D), new BigDecimal(1));
+
+        Bids<MockWorld.MockGood> bids = new Bids<>();
+        bids.addBid(new XORBid.Builder<>(bidder(1), Sets.newHashSet(bid1)).build());
+        bids.addBid(new XORBid.Builder<>(bidder(2), Sets.newHashSet(bid2)).build());
+        bids.addBid(new XORBid.Builder<>(bidder(3), Sets.newHashSet(bid3)).build());
+        bids.addBid(new XORBid.Builder<>(bidder(4), Sets.newHashSet(bid4)).build());
+
+        Auction<MockGood> auction = new Auction<>(bids, Sets.newHashSet(A, B, C, D));
+        XORVCGAuction<MockGood> am = new XORVCGAuction<>(auction);
+        am.setPaymentTolerance(0.5);
+        Payment<MockGood> payment = am.getPayment();
+        for (int i = 1; i <= 3; i += 2) {
+            BidderPayment bidderPayment = payment.paymentOf(bidder(i));
+            assertTrue(bidderPayment.getLowerBound() <= 1 + 0.00001);
+            assertTrue(bidderPayment.getUpperBound() >= 1 - 0.00001);
+            assertTrue(bidderPayment.getUpperBound() - bidderPayment.getLowerBound() <= 0.5 + 0.00001);
+        }
+    }
+
 }
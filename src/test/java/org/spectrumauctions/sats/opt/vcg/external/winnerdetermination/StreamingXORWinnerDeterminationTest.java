@@ -0,0 +1,125 @@
+package org.spectrumauctions.sats.opt.vcg.external.winnerdetermination;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.bidlang.xor.XORBid;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.opt.vcg.external.MockWorld;
+import org.spectrumauctions.sats.opt.vcg.external.MockWorld.MockGood;
+import org.spectrumauctions.sats.opt.vcg.external.domain.Auction;
+import org.spectrumauctions.sats.opt.vcg.external.domain.Bids;
+import org.spectrumauctions.sats.opt.vcg.external.domain.XORAllocation;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamingXORWinnerDeterminationTest {
+
+    private MockGood A;
+    private MockGood B;
+    private MockGood C;
+    private MockGood D;
+    private MockGood E;
+
+    @Before
+    public void setUp() {
+        MockWorld.getInstance().reset();
+        A = MockWorld.getInstance().createNewGood();
+        B = MockWorld.getInstance().createNewGood();
+        C = MockWorld.getInstance().createNewGood();
+        D = MockWorld.getInstance().createNewGood();
+        E = MockWorld.getInstance().createNewGood();
+    }
+
+    @Test
+    public void testStreamingEqualsInMemoryWinnerDetermination() {
+        Bidder<MockGood> bidder0 = MockWorld.getInstance().createNewBidder();
+        Bidder<MockGood> bidder1 = MockWorld.getInstance().createNewBidder();
+        Bidder<MockGood> bidder2 = MockWorld.getInstance().createNewBidder();
+        Bids<MockGood> bids = new Bids<>();
+        bids.addBid(new XORBid.Builder<>(bidder0, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(A, B), new BigDecimal(1633.62)),
+                new XORValue<>(new Bundle<>(C), new BigDecimal(997.064)))).build());
+        bids.addBid(new XORBid.Builder<>(bidder1, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(A, E), new BigDecimal(1779.42)),
+                new XORValue<>(new Bundle<>(D), new BigDecimal(894.644)))).build());
+        bids.addBid(new XORBid.Builder<>(bidder2, Sets.newHashSet(
+                new XORValue<>(new Bundle<>(B, C), new BigDecimal(1751.26)),
+                new XORValue<>(new Bundle<>(C, D), new BigDecimal(1795.51)))).build());
+
+        Auction<MockGood> auction = new Auction<>(bids, Sets.newHashSet(A, B, C, D, E));
+        XORAllocation<MockGood> expected = new XORWinnerDetermination<>(auction).calculateAllocation();
+
+        StreamingXORWinnerDetermination<MockGood> streaming = new StreamingXORWinnerDetermination<>(Lists.newArrayList(A, B, C, D, E));
+        streaming.ingestAll(bids.getBids().iterator());
+        assertEquals(6, streaming.getNumberOfBundleBids());
+        XORAllocation<MockGood> result = streaming.calculateAllocation();
+
+        assertEquals(expected.getTotalAllocationValue(), result.getTotalAllocationValue(), 1e-6);
+        for (Bidder<MockGood> bidder : bids.getBidders()) {
+            assertEquals(expected.getAllocation(bidder).getGoods(), result.getAllocation(bidder).getGoods());
+        }
+    }
+
+    @Test
+    public void testPrimitiveIngestion() {
+        Bidder<MockGood> bidder0 = MockWorld.getInstance().createNewBidder();
+        Bidder<MockGood> bidder1 = MockWorld.getInstance().createNewBidder();
+        StreamingXORWinnerDetermination<MockGood> streaming = new StreamingXORWinnerDetermination<>(Lists.newArrayList(A, B, C, D, E));
+        streaming.ingest(bidder0, 3, new int[]{0, 1});
+        streaming.ingest(bidder0, 2, new int[]{0});
+        streaming.ingest(bidder1, 2, new int[]{1, 2});
+        XORAllocation<MockGood> result = streaming.calculateAllocation();
+        assertEquals(4, result.getTotalAllocationValue(), 1e-6);
+        assertEquals(new Bundle<>(A), result.getAllocation(bidder0).getGoods());
+        assertEquals(1, result.getAllocation(bidder0).getAcceptedBids().size());
+
+        // Ingesting a further bid invalidates the previous result
+        streaming.ingest(bidder1, 10, new int[]{0, 1, 2});
+        result = streaming.calculateAllocation();
+        assertEquals(10, result.getTotalAllocationValue(), 1e-6);
+        assertTrue(result.getAllocation(bidder0).getAcceptedBids().isEmpty());
+    }
+
+    @Test
+    public void testInvalidBundleBidsAreRejectedWithoutChangingTheModel() {
+        Bidder<MockGood> bidder0 = MockWorld.getInstance().createNewBidder();
+        StreamingXORWinnerDetermination<MockGood> streaming = new StreamingXORWinnerDetermination<>(Lists.newArrayList(A, B, C, D, E));
+        streaming.ingest(bidder0, 3, new int[]{0, 1});
+        int numberOfVariables = streaming.getMIP().getVars().size();
+        int numberOfConstraints = streaming.getMIP().getConstraints().size();
+
+        try {
+            streaming.ingest(bidder0, 2, new int[]{2, 5});
+            fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            streaming.ingest(bidder0, 2, new int[]{2}, 2);
+            fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            streaming.ingest(bidder0, 2, new int[]{2, 3, 2});
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(1, streaming.getNumberOfBundleBids());
+        assertEquals(numberOfVariables, streaming.getMIP().getVars().size());
+        assertEquals(numberOfConstraints, streaming.getMIP().getConstraints().size());
+
+        // The buffer of the validation is reset after a rejected bid
+        streaming.ingest(bidder0, 2, new int[]{2, 3});
+        assertEquals(2, streaming.getNumberOfBundleBids());
+    }
+}
@@ -115,4 +115,25 @@ public class WinnerDeterminationTest {
         assertEquals(result.getAllocation(bidder(4)).getTradeValue(), 0, 0.0001);
 
     }
+
+    @Test
+    public void testColumnGenerationWinnerDetermination() {
+        Bids<MockWorld.MockGood> bids = new Bids<>();
+        bids.addBid(new XORBid.Builder<>(bidder(0), Sets.newHashSet(
+                new XORValue<>(new Bundle<>(A, B, C, D, E), new BigDecimal(10)),
+                new XORValue<>(new Bundle<>(A, B), new BigDecimal(6)),
+                new XORValue<>(new Bundle<>(A), new BigDecimal(1)))).build());
+        bids.addBid(new XORBid.Builder<>(bidder(1), Sets.newHashSet(
+                new XORValue<>(new Bundle<>(A, B, C, D), new BigDecimal(9)),
+                new XORValue<>(new Bundle<>(C, D, E), new BigDecimal(7)),
+                new XORValue<>(new Bundle<>(E), new BigDecimal(2)))).build());
+
+        Auction<MockWorld.MockGood> auction = new Auction<>(bids, Sets.newHashSet(A, B, C, D, E));
+        XORAllocation<MockWorld.MockGood> expected = new XORWinnerDetermination<>(auction).calculateAllocation();
+        ColumnGenerationWinnerDetermination<MockWorld.MockGood> wd = new ColumnGenerationWinnerDetermination<>(auction, 1, 1);
+        XORAllocation<MockWorld.MockGood> result = wd.calculateAllocation();
+        assertEquals(13, expected.getTotalAllocationValue(), 1e-6);
+        assertEquals(expected.getTotalAllocationValue(), result.getTotalAllocationValue(), 1e-6);
+        assertTrue(wd.getLPBound() >= result.getTotalAllocationValue() - 1e-6);
+    }
 }